@@ -0,0 +1,230 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Front door for a shared Library. Every call passes two checks before it reaches the core:
+// - a token bucket per client and operation, so one kiosk or crawler cannot take all capacity
+// - a priority lane: desk checkouts and returns go first; catalog browsing only gets what the
+//   desk leaves over (one call in flight while desk work is running), so a search spike
+//   never queues in front of a checkout
+// A refused call is rejected at once, without waiting or touching the library.
+// The client table is bounded. When it is full, clients whose buckets have all refilled are
+// dropped (a full bucket is the same as a new one); only if none has, new clients share one
+// overflow bucket until the next sweep.
+public class AdmissionController {
+    public static final int BORROW = 0;
+    public static final int RETURN = 1;
+    public static final int SEARCH = 2;
+    private static final int OPERATIONS = 3;
+
+    public static final int ADMITTED = 0;
+    public static final int RATE_LIMITED = 1;
+    public static final int OVERLOADED = 2;
+
+    private static final long SWEEP_INTERVAL_NANOS = 1_000_000_000L; // Least time between idle-client sweeps
+
+    private final Library library;
+    private volatile TokenBucket.Rate[] limits; // Per operation; replaced whole, never written in place
+    private final ConcurrentHashMap<String, TokenBucket[]> buckets; // Key: client ID
+    private final TokenBucket[] overflow; // Shared by new clients while the table is full of active ones
+    private final int maxClients;
+    private long lastSweep;               // Guarded by buckets
+    private final int maxDeskInFlight;
+    private final int maxBrowseInFlight;
+    private final AtomicInteger deskInFlight;
+    private final AtomicInteger browseInFlight;
+    private final LongAdder[] admitted;
+    private final LongAdder[] rateLimited;
+    private final LongAdder[] overloaded;
+
+    public AdmissionController(Library library) {
+        this(library, 64, 4, 100000);
+    }
+
+    public AdmissionController(Library library, int maxDeskInFlight, int maxBrowseInFlight, int maxClients) {
+        this.library = library;
+        this.limits = new TokenBucket.Rate[] {
+                new TokenBucket.Rate(5, 20), new TokenBucket.Rate(5, 50), new TokenBucket.Rate(20, 40) };
+        this.buckets = new ConcurrentHashMap<>();
+        this.overflow = newBuckets();
+        this.maxClients = maxClients;
+        this.lastSweep = System.nanoTime() - SWEEP_INTERVAL_NANOS;
+        this.maxDeskInFlight = maxDeskInFlight;
+        this.maxBrowseInFlight = maxBrowseInFlight;
+        this.deskInFlight = new AtomicInteger();
+        this.browseInFlight = new AtomicInteger();
+        this.admitted = new LongAdder[OPERATIONS];
+        this.rateLimited = new LongAdder[OPERATIONS];
+        this.overloaded = new LongAdder[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            admitted[i] = new LongAdder();
+            rateLimited[i] = new LongAdder();
+            overloaded[i] = new LongAdder();
+        }
+    }
+
+    // Per-client limit for one operation; clients already tracked pick it up on their next call
+    public synchronized void setLimit(int operation, double perSecond, int burstSize) {
+        TokenBucket.Rate[] updated = limits.clone();
+        updated[operation] = new TokenBucket.Rate(perSecond, burstSize);
+        limits = updated;
+    }
+
+    // Admit or refuse one call; every ADMITTED call must be followed by done(operation)
+    public int admit(String clientId, int operation) {
+        return admit(clientId, operation, System.nanoTime());
+    }
+
+    public int admit(String clientId, int operation, long now) {
+        TokenBucket[] client = buckets.get(clientId);
+        if (client == null) {
+            client = track(clientId, now);
+        }
+        TokenBucket bucket = client[operation];
+        TokenBucket.Rate limit = limits[operation];
+        if (bucket.getRate() != limit) {
+            bucket.setRate(limit);
+        }
+        if (!bucket.tryAcquire(now)) {
+            rateLimited[operation].increment();
+            return RATE_LIMITED;
+        }
+        if (!enterLane(operation)) {
+            bucket.refund(); // Shed for load, not for the client's rate: it keeps its token
+            overloaded[operation].increment();
+            return OVERLOADED;
+        }
+        admitted[operation].increment();
+        return ADMITTED;
+    }
+
+    public void done(int operation) {
+        (operation == SEARCH ? browseInFlight : deskInFlight).decrementAndGet();
+    }
+
+    // New clients are added one at a time, so the table never grows past maxClients. Known
+    // clients never get here and take no lock.
+    private TokenBucket[] track(String clientId, long now) {
+        synchronized (buckets) {
+            TokenBucket[] client = buckets.get(clientId);
+            if (client != null) {
+                return client;
+            }
+            if (buckets.size() >= maxClients && now - lastSweep >= SWEEP_INTERVAL_NANOS) {
+                lastSweep = now;
+                evictIdle(now);
+            }
+            if (buckets.size() >= maxClients) {
+                return overflow;
+            }
+            client = newBuckets();
+            buckets.put(clientId, client);
+            return client;
+        }
+    }
+
+    // Drop clients whose buckets have all refilled. A call racing the removal may spend a token
+    // from the dropped buckets, so that client gets at most one token back.
+    private void evictIdle(long now) {
+        buckets.values().removeIf(client -> {
+            for (TokenBucket bucket : client) {
+                if (!bucket.isFull(now)) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    public int getTrackedClients() { return buckets.size(); }
+
+    private TokenBucket[] newBuckets() {
+        TokenBucket.Rate[] current = limits;
+        TokenBucket[] client = new TokenBucket[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            client[i] = new TokenBucket(current[i]);
+        }
+        return client;
+    }
+
+    private boolean enterLane(int operation) {
+        if (operation != SEARCH) {
+            return tryIncrement(deskInFlight, maxDeskInFlight);
+        }
+        int limit = deskInFlight.get() > 0 ? 1 : maxBrowseInFlight;
+        return tryIncrement(browseInFlight, limit);
+    }
+
+    private static boolean tryIncrement(AtomicInteger counter, int limit) {
+        while (true) {
+            int current = counter.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Guarded calls: a rejected borrow or return returns false, a rejected search an empty list
+    public boolean borrowBook(String clientId, String memberId, String isbn) {
+        if (refused(admit(clientId, BORROW))) {
+            return false;
+        }
+        try {
+            return library.borrowBook(memberId, isbn);
+        } finally {
+            done(BORROW);
+        }
+    }
+
+    public boolean returnBook(String clientId, String memberId, String isbn) {
+        if (refused(admit(clientId, RETURN))) {
+            return false;
+        }
+        try {
+            return library.returnBook(memberId, isbn);
+        } finally {
+            done(RETURN);
+        }
+    }
+
+    public List<Book> searchBooks(String clientId, String query) {
+        if (refused(admit(clientId, SEARCH))) {
+            return new ArrayList<>();
+        }
+        try {
+            return library.fuzzySearch(query);
+        } finally {
+            done(SEARCH);
+        }
+    }
+
+    private boolean refused(int result) {
+        if (result == ADMITTED) {
+            return false;
+        }
+        if (!library.isQuiet()) {
+            System.out.println(result == RATE_LIMITED ? "Too many requests from this client. Please try again shortly."
+                    : "The library is busy. Please try again shortly.");
+        }
+        return true;
+    }
+
+    public long getAdmitted(int operation) { return admitted[operation].sum(); }
+    public long getRateLimited(int operation) { return rateLimited[operation].sum(); }
+    public long getOverloaded(int operation) { return overloaded[operation].sum(); }
+
+    public void displayStats() {
+        String[] names = { "Borrow", "Return", "Search" };
+        System.out.println("\n===== Admission Control =====");
+        System.out.println("Tracked Clients: " + buckets.size());
+        for (int i = 0; i < OPERATIONS; i++) {
+            System.out.println(names[i] + ": admitted " + admitted[i].sum() + ", rate-limited " +
+                    rateLimited[i].sum() + ", shed " + overloaded[i].sum());
+        }
+    }
+}
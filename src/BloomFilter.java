@@ -0,0 +1,165 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+// Bloom filter over string keys: answers "definitely absent" without touching the store.
+// Bits are packed into a long[]; k probe positions come from double hashing of two 32-bit hashes.
+// A filter can be saved beside a catalog snapshot, so startup reads the bits instead of every key.
+public class BloomFilter {
+    private static final int MAGIC = 0x4C4D4246; // "LMBF"
+
+    private final long[] bits;
+    private final int numBits;
+    private final int numHashes;
+    private final int expectedInsertions;
+    private int insertions;
+
+    // Statistics
+    private long queries;
+    private long rejections;
+    private long falsePositives;
+
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter sizing");
+        }
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+        this.numBits = (int) Math.max(64, Math.min(m, Integer.MAX_VALUE - 63));
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * ln2));
+        this.bits = new long[(numBits + 63) / 64];
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    private BloomFilter(long[] bits, int numBits, int numHashes, int expectedInsertions, int insertions) {
+        this.bits = bits;
+        this.numBits = numBits;
+        this.numHashes = numHashes;
+        this.expectedInsertions = expectedInsertions;
+        this.insertions = insertions;
+    }
+
+    // Write the filter, stamped with the snapshot's event sequence (statistics are not kept)
+    public void save(String path, long sequence) throws IOException {
+        File temp = new File(path + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(sequence);
+            out.writeInt(numBits);
+            out.writeInt(numHashes);
+            out.writeInt(expectedInsertions);
+            out.writeInt(insertions);
+            for (long word : bits) {
+                out.writeLong(word);
+            }
+        }
+        Files.move(temp.toPath(), new File(path).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Read a saved filter; null if it is missing or was saved with a different snapshot
+    public static BloomFilter load(String path, long sequence) throws IOException {
+        File file = new File(path);
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readLong() != sequence) {
+                return null;
+            }
+            int numBits = in.readInt();
+            int numHashes = in.readInt();
+            int expectedInsertions = in.readInt();
+            int insertions = in.readInt();
+            long[] bits = new long[(numBits + 63) / 64];
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] = in.readLong();
+            }
+            return new BloomFilter(bits, numBits, numHashes, expectedInsertions, insertions);
+        } catch (EOFException e) {
+            return null; // Torn file: build from the keys instead
+        }
+    }
+
+    public void put(String key) {
+        int h1 = hash1(key);
+        int h2 = hash2(key);
+        for (int i = 0; i < numHashes; i++) {
+            int bit = Math.floorMod(h1 + i * h2, numBits);
+            bits[bit >>> 6] |= 1L << bit;
+        }
+        insertions++;
+    }
+
+    public boolean mightContain(String key) {
+        queries++;
+        int h1 = hash1(key);
+        int h2 = hash2(key);
+        for (int i = 0; i < numHashes; i++) {
+            int bit = Math.floorMod(h1 + i * h2, numBits);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                rejections++;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Called when mightContain() said yes but the store had no such key
+    public void recordFalsePositive() {
+        falsePositives++;
+    }
+
+    // Over capacity: the false-positive rate is now above the configured target
+    public boolean isSaturated() {
+        return insertions > expectedInsertions;
+    }
+
+    public int getExpectedInsertions() { return expectedInsertions; }
+    public int getInsertions() { return insertions; }
+    public long getQueries() { return queries; }
+    public long getRejections() { return rejections; }
+    public long getFalsePositives() { return falsePositives; }
+
+    // Theoretical rate for the current fill: (1 - e^(-kn/m))^k
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) numHashes * insertions / numBits), numHashes);
+    }
+
+    // Observed rate among lookups for keys that turned out to be absent
+    public double getObservedFalsePositiveRate() {
+        long negatives = rejections + falsePositives;
+        return negatives == 0 ? 0.0 : (double) falsePositives / negatives;
+    }
+
+    private static int hash1(String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    private static int hash2(String key) {
+        int h = 0x811C9DC5; // FNV-1a
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x01000193;
+        }
+        return h | 1; // Odd step so probes don't collapse
+    }
+
+    @Override
+    public String toString() {
+        return "BloomFilter{" +
+                "Keys=" + insertions + "/" + expectedInsertions +
+                ", Hashes=" + numHashes +
+                ", Bits=" + numBits +
+                ", Queries=" + queries +
+                ", Rejected=" + rejections +
+                ", FalsePositives=" + falsePositives +
+                ", ExpectedFPR=" + String.format("%.4f", getExpectedFalsePositiveRate()) +
+                ", ObservedFPR=" + String.format("%.4f", getObservedFalsePositiveRate()) +
+                '}';
+    }
+}
@@ -1,6 +1,7 @@
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Set;
 
 public class Book {
     private String isbn;
@@ -8,7 +9,8 @@ public class Book {
     private String author;
     private int totalCopies;
     private int availableCopies;
-    private LinkedList<String> borrowersQueue;
+    private int heldCopies; // Returned copies waiting on the pickup shelf
+    private LinkedHashSet<String> borrowersQueue; // Arrival order, with O(1) membership and removal
     private List<String> currentBorrowers; // Track who has borrowed the book
     private String genre;
     private String publisher;
@@ -22,7 +24,7 @@ public class Book {
         this.author = author;
         this.totalCopies = totalCopies;
         this.availableCopies = totalCopies;
-        this.borrowersQueue = new LinkedList<>();
+        this.borrowersQueue = new LinkedHashSet<>();
         this.currentBorrowers = new ArrayList<>();
         this.genre = "General";
         this.publisher = "Unknown";
@@ -38,7 +40,7 @@ public class Book {
         this.author = author;
         this.totalCopies = totalCopies;
         this.availableCopies = totalCopies;
-        this.borrowersQueue = new LinkedList<>();
+        this.borrowersQueue = new LinkedHashSet<>();
         this.currentBorrowers = new ArrayList<>();
         this.genre = genre;
         this.publisher = publisher;
@@ -52,7 +54,8 @@ public class Book {
     public String getAuthor() { return author; }
     public int getTotalCopies() { return totalCopies; }
     public int getAvailableCopies() { return availableCopies; }
-    public LinkedList<String> getBorrowersQueue() { return borrowersQueue; }
+    public int getHeldCopies() { return heldCopies; }
+    public Set<String> getBorrowersQueue() { return borrowersQueue; }
     public List<String> getCurrentBorrowers() { return currentBorrowers; }
     public String getGenre() { return genre; }
     public String getPublisher() { return publisher; }
@@ -86,6 +89,43 @@ public class Book {
         return false;
     }
 
+    // Pickup shelf: move an available copy onto / off the hold shelf
+    public boolean holdCopy() {
+        if (availableCopies > 0) {
+            availableCopies--;
+            heldCopies++;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean releaseHeldCopy() {
+        if (heldCopies > 0) {
+            heldCopies--;
+            availableCopies++;
+            return true;
+        }
+        return false;
+    }
+
+    // Integrity repair only: overwrite the counters after they drifted from the borrower list
+    public void resetCopyCounts(int availableCopies, int heldCopies) {
+        this.availableCopies = availableCopies;
+        this.heldCopies = heldCopies;
+    }
+
+    // Set the stock count, moving available copies by the difference; false (and unchanged)
+    // if that would leave fewer copies than are on loan or on the pickup shelf
+    public boolean setTotalCopies(int totalCopies) {
+        int available = availableCopies + totalCopies - this.totalCopies;
+        if (available < 0) {
+            return false;
+        }
+        this.totalCopies = totalCopies;
+        this.availableCopies = available;
+        return true;
+    }
+
     // Add more copies to the book
     public void addCopies(int numberOfCopies) {
         if (numberOfCopies > 0) {
@@ -109,8 +149,7 @@ public class Book {
 
     // Queue management
     public void addToQueue(String memberId) {
-        if (!borrowersQueue.contains(memberId)) {
-            borrowersQueue.add(memberId);
+        if (enqueue(memberId)) {
             System.out.println("Member " + memberId + " added to waiting queue for book: " + title);
         } else {
             System.out.println("Member " + memberId + " is already in the queue for book: " + title);
@@ -118,21 +157,32 @@ public class Book {
     }
 
     public String getNextInQueue() {
-        String nextMember = borrowersQueue.poll();
-        if (nextMember != null) {
-            System.out.println("Next member in queue: " + nextMember + " for book: " + title);
+        if (borrowersQueue.isEmpty()) {
+            return null;
         }
+        String nextMember = borrowersQueue.iterator().next();
+        borrowersQueue.remove(nextMember);
+        System.out.println("Next member in queue: " + nextMember + " for book: " + title);
         return nextMember;
     }
 
     public boolean removeFromQueue(String memberId) {
-        boolean removed = borrowersQueue.remove(memberId);
+        boolean removed = dequeue(memberId);
         if (removed) {
             System.out.println("Member " + memberId + " removed from queue for book: " + title);
         }
         return removed;
     }
 
+    // Silent variants for the circulation engine, which reports on its own terms
+    public boolean enqueue(String memberId) {
+        return borrowersQueue.add(memberId);
+    }
+
+    public boolean dequeue(String memberId) {
+        return borrowersQueue.remove(memberId);
+    }
+
     public int getQueueSize() {
         return borrowersQueue.size();
     }
@@ -157,7 +207,7 @@ public class Book {
     }
 
     public int getBorrowedCopiesCount() {
-        return totalCopies - availableCopies;
+        return totalCopies - availableCopies - heldCopies;
     }
 
     // Utility methods
@@ -186,6 +236,7 @@ public class Book {
         System.out.println("Total Copies: " + totalCopies);
         System.out.println("Available Copies: " + availableCopies);
         System.out.println("Borrowed Copies: " + getBorrowedCopiesCount());
+        System.out.println("Held for Pickup: " + heldCopies);
         System.out.println("Availability: " + String.format("%.1f", getAvailabilityPercentage()) + "%");
         System.out.println("Queue Size: " + getQueueSize());
         System.out.println("Status: " + (isActive ? "Active" : "Inactive"));
@@ -0,0 +1,404 @@
+import java.util.*;
+
+// Typo-tolerant search over book titles and authors, maintained by Library.
+// Every distinct word is indexed once by its trigrams. A query word is compared only against
+// vocabulary words that share enough trigrams with it (each edit can break at most four), and
+// those few candidates are checked with an edit distance that gives up once it passes the
+// limit. Swapping two neighbouring letters counts as one edit. Books are then collected from the matched words' posting lists, rarest word first.
+public class BookSearchIndex {
+    private static final int MAX_RESULTS = 20;
+
+    // Growable int list used for posting lists
+    private static final class IntList {
+        int[] values = new int[2];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        // Swap-remove: the last value fills the freed position and is returned, or -1 if it was the one removed
+        int removeAt(int position) {
+            int last = values[--size];
+            if (position == size) {
+                return -1;
+            }
+            values[position] = last;
+            return last;
+        }
+    }
+
+    private HashMap<String, Integer> wordIds;   // Vocabulary: word -> word ID
+    private ArrayList<String> words;            // Word ID -> word
+    private ArrayList<IntList> wordBooks;       // Word ID -> book ordinals
+    private HashMap<Long, IntList> trigramWords; // Packed trigram -> word IDs
+    private HashMap<String, Integer> bookOrdinals; // Key: ISBN
+    private ArrayList<String> bookIsbns;
+    private ArrayList<int[]> bookWords;         // Book ordinal -> sorted word IDs as indexed
+    private ArrayList<int[]> bookSlots;         // Book ordinal -> its position in each of those words' posting lists
+    private int[] trigramHits;                  // Scratch counter per word ID, reused between queries
+
+    public BookSearchIndex() {
+        wordIds = new HashMap<>();
+        words = new ArrayList<>();
+        wordBooks = new ArrayList<>();
+        trigramWords = new HashMap<>();
+        bookOrdinals = new HashMap<>();
+        bookIsbns = new ArrayList<>();
+        bookWords = new ArrayList<>();
+        bookSlots = new ArrayList<>();
+        trigramHits = new int[16];
+    }
+
+    // Add or re-index a book after its title or author changed
+    public void update(Book book) {
+        int[] indexed = wordIdsFor(book.getTitle() + " " + book.getAuthor());
+        Integer ordinal = bookOrdinals.get(book.getIsbn());
+        if (ordinal == null) {
+            ordinal = bookIsbns.size();
+            bookOrdinals.put(book.getIsbn(), ordinal);
+            bookIsbns.add(book.getIsbn());
+            bookWords.add(new int[0]);
+            bookSlots.add(new int[0]);
+        }
+        int[] previous = bookWords.get(ordinal);
+        if (Arrays.equals(previous, indexed)) {
+            return;
+        }
+        int[] previousSlots = bookSlots.get(ordinal);
+        for (int i = 0; i < previous.length; i++) {
+            int moved = wordBooks.get(previous[i]).removeAt(previousSlots[i]);
+            if (moved >= 0) {
+                // The moved book now sits where this one was; its word list is sorted, so find the word by binary search
+                bookSlots.get(moved)[Arrays.binarySearch(bookWords.get(moved), previous[i])] = previousSlots[i];
+            }
+        }
+        int[] slots = new int[indexed.length];
+        for (int i = 0; i < indexed.length; i++) {
+            IntList books = wordBooks.get(indexed[i]);
+            slots[i] = books.size;
+            books.add(ordinal);
+        }
+        bookWords.set(ordinal, indexed);
+        bookSlots.set(ordinal, slots);
+    }
+
+    public int getVocabularySize() {
+        return words.size();
+    }
+
+    // ISBNs of the best matches, best first. Each query word may be misspelled by up to one
+    // edit (two for words of six letters or more); books matching more words rank higher.
+    public List<String> search(String query) {
+        List<int[]> matches = new ArrayList<>(); // Per query word: matched word IDs and distances, interleaved
+        List<Integer> postingSizes = new ArrayList<>();
+        for (String term : tokenize(query)) {
+            int[] matched = matchWord(term);
+            if (matched.length == 0) {
+                continue; // Nothing close; score the remaining words
+            }
+            int size = 0;
+            for (int i = 0; i < matched.length; i += 2) {
+                size += wordBooks.get(matched[i]).size;
+            }
+            matches.add(matched);
+            postingSizes.add(size);
+        }
+        if (matches.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        if (matches.size() == 1) {
+            return closestBooks(matches.get(0));
+        }
+
+        // Rarest word first: its books are the candidates, the other words add to their score
+        Integer[] order = new Integer[matches.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(postingSizes::get));
+        HashMap<Integer, Integer> scores = new HashMap<>(); // Key: book ordinal
+        for (int position = 0; position < order.length; position++) {
+            int[] matched = matches.get(order[position]);
+            boolean seed = position == 0;
+            if (!seed && postingSizes.get(order[position]) > scores.size()) {
+                // Cheaper to look the word up in each candidate than to walk its posting lists
+                for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+                    int best = bestScore(bookWords.get(entry.getKey()), matched);
+                    entry.setValue(entry.getValue() + best);
+                }
+                continue;
+            }
+            HashMap<Integer, Integer> wordScore = new HashMap<>();
+            for (int i = 0; i < matched.length; i += 2) {
+                int score = 10 - 3 * matched[i + 1];
+                IntList books = wordBooks.get(matched[i]);
+                for (int j = 0; j < books.size; j++) {
+                    int ordinal = books.values[j];
+                    if (seed || scores.containsKey(ordinal)) {
+                        wordScore.merge(ordinal, score, Math::max);
+                    }
+                }
+            }
+            wordScore.forEach((ordinal, score) -> scores.merge(ordinal, score, Integer::sum));
+        }
+
+        List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort((a, b) -> b.getValue() != a.getValue().intValue()
+                ? b.getValue() - a.getValue() : a.getKey() - b.getKey());
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < ranked.size() && i < MAX_RESULTS; i++) {
+            result.add(bookIsbns.get(ranked.get(i).getKey()));
+        }
+        return result;
+    }
+
+    // Single-word query: books of the closest words first, stopping at MAX_RESULTS
+    private List<String> closestBooks(int[] matched) {
+        List<String> result = new ArrayList<>();
+        for (int distance = 0; distance <= 2; distance++) {
+            for (int i = 0; i < matched.length && result.size() < MAX_RESULTS; i += 2) {
+                if (matched[i + 1] != distance) {
+                    continue;
+                }
+                IntList books = wordBooks.get(matched[i]);
+                for (int j = 0; j < books.size && result.size() < MAX_RESULTS; j++) {
+                    String isbn = bookIsbns.get(books.values[j]);
+                    if (!result.contains(isbn)) {
+                        result.add(isbn);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int bestScore(int[] bookWordIds, int[] matched) {
+        int best = 0;
+        for (int i = 0; i < matched.length; i += 2) {
+            if (Arrays.binarySearch(bookWordIds, matched[i]) >= 0) {
+                best = Math.max(best, 10 - 3 * matched[i + 1]);
+            }
+        }
+        return best;
+    }
+
+    // Vocabulary words within the allowed edit distance of the term, as {wordId, distance} pairs
+    private int[] matchWord(String term) {
+        int limit = term.length() <= 2 ? 0 : term.length() <= 5 ? 1 : 2;
+        Integer exact = wordIds.get(term);
+        if (limit == 0) {
+            return exact == null ? new int[0] : new int[] { exact, 0 };
+        }
+
+        // q-gram lemma: an edit breaks at most four trigrams (a swap of neighbours touches four),
+        // so a word within `limit` edits shares at least `needed` of these distinct trigrams and
+        // must appear in at least one of any (count - needed + 1) of them. Only those rarest lists
+        // are walked; the common trigrams are credited to every candidate. Short or repetitive
+        // terms ("banana") have too few distinct trigrams for any bound, so every word is compared.
+        long[] grams = trigrams(term);
+        int needed = grams.length - 4 * limit;
+        if (needed <= 0) {
+            return scanVocabulary(term, limit);
+        }
+        IntList[] lists = new IntList[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = trigramWords.getOrDefault(grams[i], new IntList());
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+        int probed = grams.length - needed + 1;
+        int unprobed = grams.length - probed;
+
+        List<Integer> touched = new ArrayList<>();
+        if (trigramHits.length < words.size()) {
+            trigramHits = new int[Math.max(words.size(), trigramHits.length * 2)];
+        }
+        for (int i = 0; i < probed; i++) {
+            IntList ids = lists[i];
+            for (int j = 0; j < ids.size; j++) {
+                int wordId = ids.values[j];
+                if (trigramHits[wordId]++ == 0) {
+                    touched.add(wordId);
+                }
+            }
+        }
+        IntList matched = new IntList();
+        for (int wordId : touched) {
+            if (trigramHits[wordId] + unprobed >= needed && wordBooks.get(wordId).size > 0) {
+                int distance = boundedDistance(term, words.get(wordId), limit);
+                if (distance <= limit) {
+                    matched.add(wordId);
+                    matched.add(distance);
+                }
+            }
+            trigramHits[wordId] = 0;
+        }
+        return Arrays.copyOf(matched.values, matched.size);
+    }
+
+    // Every vocabulary word still on a book, compared directly
+    private int[] scanVocabulary(String term, int limit) {
+        IntList matched = new IntList();
+        for (int wordId = 0; wordId < words.size(); wordId++) {
+            if (wordBooks.get(wordId).size > 0) {
+                int distance = boundedDistance(term, words.get(wordId), limit);
+                if (distance <= limit) {
+                    matched.add(wordId);
+                    matched.add(distance);
+                }
+            }
+        }
+        return Arrays.copyOf(matched.values, matched.size);
+    }
+
+    // Damerau distance (optimal string alignment: insert, delete, substitute, or swap two
+    // neighbours), or limit + 1 as soon as it is certain to exceed the limit
+    static int boundedDistance(String a, String b, int limit) {
+        if (Math.abs(a.length() - b.length()) > limit) {
+            return limit + 1;
+        }
+        int[] beforePrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], beforePrevious[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            // A row never goes below the one before it, swaps included
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] swap = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], limit + 1);
+    }
+
+    private int[] wordIdsFor(String text) {
+        TreeSet<Integer> ids = new TreeSet<>();
+        for (String word : tokenize(text)) {
+            Integer id = wordIds.get(word);
+            if (id == null) {
+                id = words.size();
+                wordIds.put(word, id);
+                words.add(word);
+                wordBooks.add(new IntList());
+                for (long gram : trigrams(word)) {
+                    trigramWords.computeIfAbsent(gram, k -> new IntList()).add(id);
+                }
+            }
+            ids.add(id);
+        }
+        int[] result = new int[ids.size()];
+        int i = 0;
+        for (int id : ids) {
+            result[i++] = id;
+        }
+        return result;
+    }
+
+    // Likely intended ISBNs for a mistyped one: one digit changed, dropped, added, or two
+    // neighbours swapped. Variants with a valid ISBN-10/13 check digit come first.
+    public static List<String> isbnVariants(String input) {
+        String digits = input.replaceAll("[^0-9Xx]", "").toUpperCase();
+        LinkedHashSet<String> variants = new LinkedHashSet<>();
+        for (int i = 0; i < digits.length(); i++) {
+            for (char d = '0'; d <= '9'; d++) {
+                if (digits.charAt(i) != d) {
+                    variants.add(digits.substring(0, i) + d + digits.substring(i + 1)); // Substitution
+                }
+            }
+            variants.add(digits.substring(0, i) + digits.substring(i + 1)); // Extra digit typed
+            if (i + 1 < digits.length() && digits.charAt(i) != digits.charAt(i + 1)) {
+                variants.add(digits.substring(0, i) + digits.charAt(i + 1) + digits.charAt(i) + digits.substring(i + 2));
+            }
+        }
+        for (int i = 0; i <= digits.length(); i++) {
+            for (char d = '0'; d <= '9'; d++) {
+                variants.add(digits.substring(0, i) + d + digits.substring(i)); // Digit dropped
+            }
+        }
+        variants.remove(digits);
+        List<String> valid = new ArrayList<>();
+        List<String> others = new ArrayList<>();
+        for (String variant : variants) {
+            (isValidIsbn(variant) ? valid : others).add(variant);
+        }
+        valid.addAll(others);
+        return valid;
+    }
+
+    public static boolean isValidIsbn(String isbn) {
+        if (isbn.length() == 13) {
+            int sum = 0;
+            for (int i = 0; i < 13; i++) {
+                char c = isbn.charAt(i);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+                sum += (c - '0') * (i % 2 == 0 ? 1 : 3);
+            }
+            return sum % 10 == 0;
+        }
+        if (isbn.length() == 10) {
+            int sum = 0;
+            for (int i = 0; i < 10; i++) {
+                char c = isbn.charAt(i);
+                int value = c == 'X' && i == 9 ? 10 : c - '0';
+                if (value < 0 || value > 10 || (value == 10 && i != 9)) {
+                    return false;
+                }
+                sum += value * (10 - i);
+            }
+            return sum % 11 == 0;
+        }
+        return false;
+    }
+
+    // Lower-cased letter/digit runs
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (word.length() > 0) {
+                tokens.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    // Distinct trigrams of the word padded as "$$word$", packed three chars to a long
+    private static long[] trigrams(String word) {
+        String padded = "$$" + word + "$";
+        LinkedHashSet<Long> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+        }
+        long[] result = new long[grams.size()];
+        int i = 0;
+        for (long gram : grams) {
+            result[i++] = gram;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,48 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Storage backend for books and members. Library owns the borrow/return rules;
+// a store only keeps and finds the objects.
+public interface CatalogStore {
+    Book findBook(String isbn);
+    void addBook(Book book);
+    Collection<Book> allBooks();
+    int bookCount();
+    void forEachIsbn(Consumer<String> visitor); // Keys only, without building Book objects
+
+    Member findMember(String memberId);
+    void addMember(Member member);
+    Collection<Member> allMembers();
+    int memberCount();
+    void forEachMemberId(Consumer<String> visitor);
+
+    // Resumable pass for bulk readers such as exports. Create it and call next() under the library
+    // lock; the lock may be released between calls. Records a store has not loaded yet are passed
+    // as throwaway copies, so a full pass does not load them.
+    interface Scan<T> {
+        // Visit up to limit entries; false once every entry has been visited
+        boolean next(int limit, Consumer<T> visitor);
+    }
+
+    default Scan<Book> scanBooks() { return scanOf(allBooks()); }
+    default Scan<Member> scanMembers() { return scanOf(allMembers()); }
+
+    // Scan over entries already on the heap; only the references are copied
+    static <T> Scan<T> scanOf(Collection<T> entries) {
+        List<T> list = new ArrayList<>(entries);
+        int[] next = { 0 };
+        return (limit, visitor) -> {
+            int end = Math.min(next[0] + limit, list.size());
+            for (; next[0] < end; next[0]++) {
+                visitor.accept(list.get(next[0]));
+            }
+            return next[0] < list.size();
+        };
+    }
+
+    // Key filters saved with the store, or null if Library should build them from the keys
+    default BloomFilter savedBookFilter() { return null; }
+    default BloomFilter savedMemberFilter() { return null; }
+}
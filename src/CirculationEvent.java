@@ -0,0 +1,151 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+// Immutable record of one state-changing library operation, in the order it was applied
+public final class CirculationEvent {
+    public static final String ADD_BOOK = "ADD_BOOK";
+    public static final String ADD_MEMBER = "ADD_MEMBER";
+    public static final String BORROW = "BORROW";
+    public static final String RETURN = "RETURN";
+    public static final String HOLD_EXPIRED = "HOLD_EXPIRED";
+    public static final String HOLD_PLACED = "HOLD_PLACED"; // Derived from RETURN/HOLD_EXPIRED; informational
+    public static final String RENEW = "RENEW";
+    public static final String MEMBER_UPDATED = "MEMBER_UPDATED";
+    public static final String POLICY_LOADED = "POLICY_LOADED";
+    public static final String REPAIRED = "REPAIRED";
+    public static final String BOOK_UPDATED = "BOOK_UPDATED";
+
+    private final long sequence;
+    private final String type;
+    private final long timestamp;
+    private final String memberId;
+    private final String isbn;
+    private final String name;   // Book title or member name
+    private final String detail; // Book author, member email, or the policy text (POLICY_LOADED)
+    private final int copies;    // Copies (ADD_BOOK, BOOK_UPDATED), or the loan limit applied (BORROW, MEMBER_UPDATED)
+    private final long value;    // Due date (BORROW, RENEW; 0 if queued), member flags (MEMBER_UPDATED), or 1 if active (BOOK_UPDATED)
+    private final String extra;  // Loan ID (BORROW), member type and phone, tab-separated (MEMBER_UPDATED), or genre (BOOK_UPDATED)
+
+    public CirculationEvent(long sequence, String type, long timestamp, String memberId,
+                            String isbn, String name, String detail, int copies) {
+        this(sequence, type, timestamp, memberId, isbn, name, detail, copies, 0, null);
+    }
+
+    // Operations are published with the values the primary computed (due dates, limits), so
+    // applying an event elsewhere reproduces the result instead of re-deciding it
+    public CirculationEvent(long sequence, String type, long timestamp, String memberId,
+                            String isbn, String name, String detail, int copies, long value, String extra) {
+        this.sequence = sequence;
+        this.type = type;
+        this.timestamp = timestamp;
+        this.memberId = memberId;
+        this.isbn = isbn;
+        this.name = name;
+        this.detail = detail;
+        this.copies = copies;
+        this.value = value;
+        this.extra = extra;
+    }
+
+    // Getters
+    public long getSequence() { return sequence; }
+    public String getType() { return type; }
+    public long getTimestamp() { return timestamp; }
+    public String getMemberId() { return memberId; }
+    public String getIsbn() { return isbn; }
+    public String getName() { return name; }
+    public String getDetail() { return detail; }
+    public int getCopies() { return copies; }
+    public long getValue() { return value; }
+    public String getExtra() { return extra; }
+
+    // Re-apply this operation to another library (used by replicas)
+    public void applyTo(Library library) {
+        switch (type) {
+            case ADD_BOOK:
+                library.addBook(isbn, name, detail, copies);
+                break;
+            case ADD_MEMBER:
+                library.addMember(memberId, name, detail);
+                break;
+            case BORROW:
+                library.applyBorrow(memberId, isbn, copies, value, extra);
+                break;
+            case RETURN:
+                library.returnBook(memberId, isbn);
+                break;
+            case HOLD_EXPIRED:
+                library.expireHold(memberId, isbn);
+                break;
+            case RENEW:
+                library.applyRenew(memberId, isbn, value);
+                break;
+            case MEMBER_UPDATED:
+                library.applyMemberUpdate(memberId, name, detail, extra, copies, value);
+                break;
+            case BOOK_UPDATED:
+                library.applyBookUpdate(isbn, name, detail, copies, value, extra);
+                break;
+            case POLICY_LOADED:
+                library.applyPolicy(detail);
+                break;
+            case REPAIRED:
+                library.repair(new ConsistencyIssue(name, isbn, memberId, "replicated repair", ""));
+                break;
+            case HOLD_PLACED:
+                break; // The replica places the same hold itself when it applies the return
+            default:
+                throw new IllegalStateException("Unknown event type: " + type);
+        }
+    }
+
+    // Wire format
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(sequence);
+        out.writeUTF(type);
+        out.writeLong(timestamp);
+        writeNullable(out, memberId);
+        writeNullable(out, isbn);
+        writeNullable(out, name);
+        writeNullable(out, detail);
+        out.writeInt(copies);
+        out.writeLong(value);
+        writeNullable(out, extra);
+    }
+
+    public static CirculationEvent readFrom(DataInputStream in) throws IOException {
+        long sequence = in.readLong();
+        String type = in.readUTF();
+        long timestamp = in.readLong();
+        String memberId = readNullable(in);
+        String isbn = readNullable(in);
+        String name = readNullable(in);
+        String detail = readNullable(in);
+        int copies = in.readInt();
+        long value = in.readLong();
+        String extra = readNullable(in);
+        return new CirculationEvent(sequence, type, timestamp, memberId, isbn, name, detail, copies, value, extra);
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    @Override
+    public String toString() {
+        return "CirculationEvent{" +
+                "Seq=" + sequence +
+                ", Type=" + type +
+                ", Member='" + memberId + '\'' +
+                ", ISBN='" + isbn + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,305 @@
+import java.util.*;
+import java.util.stream.IntStream;
+
+// "Members who borrowed this also borrowed": item-to-item co-occurrence over returned loans.
+// ISBNs are interned to int IDs; pair counts live in one sparse primitive map keyed by the packed
+// pair, each member's history is a sorted int array, and each title keeps a fixed top-k neighbour
+// array (count descending, then title ID) so lookups never sort or scan.
+public class CoBorrowRecommender implements LibraryListener {
+    private static final int[] NO_TITLES = new int[0];
+
+    // Growable int list
+    private static final class IntList {
+        int[] values = new int[8];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    // Open-addressed long -> int map (linear probing, no boxing); keys are packed pairs, never negative
+    private static final class LongIntMap {
+        private static final long EMPTY = -1L;
+        long[] keys = new long[16];
+        int[] values = new int[16];
+        int size;
+
+        LongIntMap() {
+            Arrays.fill(keys, EMPTY);
+        }
+
+        int get(long key) {
+            int slot = find(key);
+            return keys[slot] == EMPTY ? 0 : values[slot];
+        }
+
+        void put(long key, int value) {
+            int slot = find(key);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    values[slot] = value;
+                    grow();
+                    return;
+                }
+            }
+            values[slot] = value;
+        }
+
+        // Add to the count for a key and return the new count
+        int add(long key, int delta) {
+            int count = get(key) + delta;
+            put(key, count);
+            return count;
+        }
+
+        void clear() {
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+        }
+
+        long[] keyArray() {
+            long[] result = new long[size];
+            int n = 0;
+            for (long key : keys) {
+                if (key != EMPTY) {
+                    result[n++] = key;
+                }
+            }
+            return result;
+        }
+
+        private int find(long key) {
+            int mask = keys.length - 1;
+            long h = key * 0x9E3779B97F4A7C15L;
+            int slot = (int) (h ^ (h >>> 32)) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = find(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    private final int topK;
+    private final HashMap<String, Integer> isbnIds;
+    private final ArrayList<String> isbns;
+    private final HashMap<String, int[]> memberHistory;        // Key: MemberID, Value: returned title IDs, sorted
+    private final LongIntMap pairCounts;                       // Key: (lowId << 32 | highId)
+    private final ArrayList<int[]> neighbourIds;
+    private final ArrayList<int[]> neighbourCounts;
+
+    public CoBorrowRecommender(int topK) {
+        this.topK = topK;
+        this.isbnIds = new HashMap<>();
+        this.isbns = new ArrayList<>();
+        this.memberHistory = new HashMap<>();
+        this.pairCounts = new LongIntMap();
+        this.neighbourIds = new ArrayList<>();
+        this.neighbourCounts = new ArrayList<>();
+    }
+
+    // Incremental update: a return links the title with everything the member returned before
+    @Override
+    public synchronized void onEvent(CirculationEvent event) {
+        if (CirculationEvent.RETURN.equals(event.getType())) {
+            recordReturn(event.getMemberId(), event.getIsbn());
+        }
+    }
+
+    public synchronized void recordReturn(String memberId, String isbn) {
+        int id = idFor(isbn);
+        int[] history = memberHistory.getOrDefault(memberId, NO_TITLES);
+        if (!addToHistory(memberId, history, id)) {
+            return; // Re-borrowing the same title adds no new co-occurrence
+        }
+        for (int other : history) {
+            int count = pairCounts.add(pairKey(id, other), 1);
+            offerNeighbour(id, other, count);
+            offerNeighbour(other, id, count);
+        }
+    }
+
+    // Insert the title into the member's sorted history; false if it is already there
+    private boolean addToHistory(String memberId, int[] history, int id) {
+        int at = Arrays.binarySearch(history, id);
+        if (at >= 0) {
+            return false;
+        }
+        at = -at - 1;
+        int[] grown = new int[history.length + 1];
+        System.arraycopy(history, 0, grown, 0, at);
+        grown[at] = id;
+        System.arraycopy(history, at, grown, at + 1, history.length - at);
+        memberHistory.put(memberId, grown);
+        return true;
+    }
+
+    // Members who returned both titles (as counted for the neighbour lists); 0 if either is unknown
+    public synchronized int sharedBorrowers(String isbn, String other) {
+        Integer a = isbnIds.get(isbn);
+        Integer b = isbnIds.get(other);
+        return a == null || b == null || a.equals(b) ? 0 : pairCounts.get(pairKey(a, b));
+    }
+
+    // Top-k similar titles, strongest first
+    public synchronized List<String> similarTitles(String isbn) {
+        Integer id = isbnIds.get(isbn);
+        List<String> result = new ArrayList<>();
+        if (id == null) {
+            return result;
+        }
+        for (int neighbour : neighbourIds.get(id)) {
+            if (neighbour < 0) {
+                break;
+            }
+            result.add(isbns.get(neighbour));
+        }
+        return result;
+    }
+
+    // Full rebuild from the event history, with the same counts the incremental path keeps.
+    // Each title's partner counts are computed in parallel from the borrowers' sorted histories
+    // (only partners with a higher ID, so every pair is counted once); the neighbour arrays are
+    // then filled sequentially.
+    public synchronized void rebuild(Collection<CirculationEvent> history) {
+        isbnIds.clear();
+        isbns.clear();
+        memberHistory.clear();
+        pairCounts.clear();
+        neighbourIds.clear();
+        neighbourCounts.clear();
+
+        for (CirculationEvent event : history) {
+            if (CirculationEvent.RETURN.equals(event.getType())) {
+                int id = idFor(event.getIsbn());
+                addToHistory(event.getMemberId(), memberHistory.getOrDefault(event.getMemberId(), NO_TITLES), id);
+            }
+        }
+
+        // Each title's borrowers as member ordinals
+        int[][] histories = memberHistory.values().toArray(new int[0][]);
+        int[] borrowerCounts = new int[isbns.size()];
+        for (int[] titles : histories) {
+            for (int title : titles) {
+                borrowerCounts[title]++;
+            }
+        }
+        int[][] borrowers = new int[isbns.size()][];
+        for (int title = 0; title < borrowers.length; title++) {
+            borrowers[title] = new int[borrowerCounts[title]];
+        }
+        int[] filled = new int[isbns.size()];
+        for (int member = 0; member < histories.length; member++) {
+            for (int title : histories[member]) {
+                borrowers[title][filled[title]++] = member;
+            }
+        }
+
+        // Per title: partner IDs and shared counts, interleaved; each task writes only its own slot
+        int[][] partners = new int[isbns.size()][];
+        ThreadLocal<int[]> scratch = ThreadLocal.withInitial(() -> new int[isbns.size()]);
+        IntStream.range(0, isbns.size()).parallel().forEach(title -> {
+            int[] counts = scratch.get();
+            IntList touched = new IntList();
+            for (int member : borrowers[title]) {
+                int[] titles = histories[member];
+                for (int i = Arrays.binarySearch(titles, title) + 1; i < titles.length; i++) {
+                    if (counts[titles[i]]++ == 0) {
+                        touched.add(titles[i]);
+                    }
+                }
+            }
+            int[] result = new int[touched.size * 2];
+            for (int i = 0; i < touched.size; i++) {
+                int other = touched.values[i];
+                result[2 * i] = other;
+                result[2 * i + 1] = counts[other];
+                counts[other] = 0;
+            }
+            partners[title] = result;
+        });
+
+        for (int title = 0; title < partners.length; title++) {
+            int[] result = partners[title];
+            for (int i = 0; i < result.length; i += 2) {
+                pairCounts.put(pairKey(title, result[i]), result[i + 1]);
+                offerNeighbour(title, result[i], result[i + 1]);
+                offerNeighbour(result[i], title, result[i + 1]);
+            }
+        }
+    }
+
+    private int idFor(String isbn) {
+        Integer id = isbnIds.get(isbn);
+        if (id == null) {
+            id = isbns.size();
+            isbnIds.put(isbn, id);
+            isbns.add(isbn);
+            int[] ids = new int[topK];
+            Arrays.fill(ids, -1);
+            neighbourIds.add(ids);
+            neighbourCounts.add(new int[topK]);
+        }
+        return id;
+    }
+
+    private static long pairKey(int a, int b) {
+        int low = Math.min(a, b);
+        int high = Math.max(a, b);
+        return ((long) low << 32) | (high & 0xFFFFFFFFL);
+    }
+
+    // Insert or move a neighbour within the title's top-k array (count descending, then lower
+    // title ID first, so incremental updates and a rebuild agree on ties)
+    private void offerNeighbour(int id, int neighbour, int count) {
+        int[] ids = neighbourIds.get(id);
+        int[] counts = neighbourCounts.get(id);
+        int position = -1;
+        for (int i = 0; i < topK; i++) {
+            if (ids[i] == neighbour || ids[i] < 0) {
+                position = i;
+                break;
+            }
+        }
+        if (position < 0) {
+            if (!ranksBefore(count, neighbour, counts[topK - 1], ids[topK - 1])) {
+                return;
+            }
+            position = topK - 1;
+        }
+        ids[position] = neighbour;
+        counts[position] = count;
+        while (position > 0 && ranksBefore(counts[position], ids[position], counts[position - 1], ids[position - 1])) {
+            int swapId = ids[position - 1];
+            int swapCount = counts[position - 1];
+            ids[position - 1] = ids[position];
+            counts[position - 1] = counts[position];
+            ids[position] = swapId;
+            counts[position] = swapCount;
+            position--;
+        }
+    }
+
+    private static boolean ranksBefore(int count, int id, int otherCount, int otherId) {
+        return count > otherCount || (count == otherCount && id < otherId);
+    }
+}
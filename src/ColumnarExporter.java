@@ -0,0 +1,179 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Exports the catalog, members and loan history to columnar files (see ColumnarWriter) for
+// the analytics warehouse. Rows are copied a batch at a time under the library lock and written
+// after the lock is released, so the desk only ever waits for one small copy and never for disk.
+// Memory use is one batch plus one row group, whatever the size of the history. Each file is
+// written under a temporary name and renamed into place when complete.
+public class ColumnarExporter {
+    private static final int COPY_BATCH = 4096; // Rows copied per lock acquisition
+
+    private static final String[] BOOK_COLUMNS = {
+            "isbn", "title", "author", "genre", "publisher", "publication_year",
+            "total_copies", "available_copies", "held_copies", "queue_size", "active"
+    };
+    private static final byte[] BOOK_TYPES = {
+            ColumnarWriter.STRING, ColumnarWriter.STRING, ColumnarWriter.STRING, ColumnarWriter.STRING,
+            ColumnarWriter.STRING, ColumnarWriter.LONG, ColumnarWriter.LONG, ColumnarWriter.LONG,
+            ColumnarWriter.LONG, ColumnarWriter.LONG, ColumnarWriter.BOOLEAN
+    };
+    private static final String[] MEMBER_COLUMNS = {
+            "member_id", "name", "email", "phone", "membership_date", "member_type", "priority_tier",
+            "max_books", "borrowed_count", "fines_paid", "active"
+    };
+    private static final byte[] MEMBER_TYPES = {
+            ColumnarWriter.STRING, ColumnarWriter.STRING, ColumnarWriter.STRING, ColumnarWriter.STRING,
+            ColumnarWriter.LONG, ColumnarWriter.STRING, ColumnarWriter.LONG, ColumnarWriter.LONG,
+            ColumnarWriter.LONG, ColumnarWriter.DOUBLE, ColumnarWriter.BOOLEAN
+    };
+    private static final String[] LOAN_COLUMNS = {
+            "transaction_id", "member_id", "isbn", "issue_date", "due_date", "return_date",
+            "returned", "fine", "fine_per_day"
+    };
+    private static final byte[] LOAN_TYPES = {
+            ColumnarWriter.STRING, ColumnarWriter.STRING, ColumnarWriter.STRING, ColumnarWriter.LONG,
+            ColumnarWriter.LONG, ColumnarWriter.LONG, ColumnarWriter.BOOLEAN, ColumnarWriter.DOUBLE,
+            ColumnarWriter.DOUBLE
+    };
+
+    private final Library library;
+
+    public ColumnarExporter(Library library) {
+        this.library = library;
+    }
+
+    // Write books.lmc, members.lmc and loans.lmc into a directory
+    public void exportAll(String directory) throws IOException {
+        new File(directory).mkdirs();
+        long start = System.currentTimeMillis();
+        long books = exportBooks(directory + File.separator + "books.lmc");
+        long members = exportMembers(directory + File.separator + "members.lmc");
+        long loans = exportLoans(directory + File.separator + "loans.lmc");
+        if (!library.isQuiet()) {
+            System.out.println("Exported " + books + " books, " + members + " members and " + loans +
+                    " loans to " + directory + " in " + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    public long exportBooks(String path) throws IOException {
+        return exportScan(path, BOOK_COLUMNS, BOOK_TYPES, library.getCatalog()::scanBooks, book -> new Object[] {
+                book.getIsbn(), book.getTitle(), book.getAuthor(), book.getGenre(), book.getPublisher(),
+                (long) book.getPublicationYear(), (long) book.getTotalCopies(),
+                (long) book.getAvailableCopies(), (long) book.getHeldCopies(),
+                (long) book.getQueueSize(), book.isActive()
+        });
+    }
+
+    public long exportMembers(String path) throws IOException {
+        return exportScan(path, MEMBER_COLUMNS, MEMBER_TYPES, library.getCatalog()::scanMembers,
+                member -> new Object[] {
+                        member.getMemberId(), member.getName(), member.getEmail(), member.getPhoneNumber(),
+                        millis(member.getMembershipDate()), member.getMemberType(), (long) member.getPriorityTier(),
+                        (long) member.getMaxBooksAllowed(), (long) member.getBorrowedBooksCount(),
+                        member.getTotalFinesPaid(), member.isActive()
+                });
+    }
+
+    // Loan history is append-only: everything up to the count taken at the start is exported,
+    // loans issued while the export runs belong to the next one
+    public long exportLoans(String path) throws IOException {
+        LoanStore loans = library.getLoans();
+        int count;
+        synchronized (library) {
+            count = loans.loanCount();
+        }
+        return write(path, LOAN_COLUMNS, LOAN_TYPES, writer -> {
+            for (int from = 0; from < count; from += COPY_BATCH) {
+                int to = Math.min(from + COPY_BATCH, count);
+                List<Object[]> rows = new ArrayList<>(to - from);
+                synchronized (library) {
+                    for (Transaction loan : loans.loanRange(from, to)) {
+                        rows.add(new Object[] {
+                                loan.getTransactionId(), loan.getMemberId(), loan.getBookIsbn(),
+                                millis(loan.getIssueDate()), millis(loan.getDueDate()), millis(loan.getReturnDate()),
+                                loan.isReturned(), loan.getFine(), loan.getFinePerDay()
+                        });
+                    }
+                }
+                writeRows(writer, LOAN_TYPES, rows);
+            }
+        });
+    }
+
+    // Books and members come from the store's scan, so records of a memory-mapped store that
+    // were never loaded are read straight from the file and stay out of the heap
+    private <T> long exportScan(String path, String[] columns, byte[] types, Supplier<CatalogStore.Scan<T>> open,
+                                Function<T, Object[]> copy) throws IOException {
+        return write(path, columns, types, writer -> {
+            CatalogStore.Scan<T> scan;
+            synchronized (library) {
+                scan = open.get();
+            }
+            boolean more = true;
+            while (more) {
+                List<Object[]> rows = new ArrayList<>(COPY_BATCH);
+                synchronized (library) {
+                    more = scan.next(COPY_BATCH, entry -> rows.add(copy.apply(entry)));
+                }
+                writeRows(writer, types, rows);
+            }
+        });
+    }
+
+    private interface RowSource {
+        void writeTo(ColumnarWriter writer) throws IOException;
+    }
+
+    // Written beside the target and renamed over it, so a failed export leaves the previous
+    // file (or none) rather than a truncated one
+    private static long write(String path, String[] columns, byte[] types, RowSource rows) throws IOException {
+        File temp = new File(path + ".tmp");
+        long count;
+        try {
+            try (ColumnarWriter writer = new ColumnarWriter(temp.getPath(), columns, types)) {
+                rows.writeTo(writer);
+                count = writer.getRowCount();
+            }
+            Files.move(temp.toPath(), new File(path).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            temp.delete();
+            throw e;
+        }
+        return count;
+    }
+
+    private static void writeRows(ColumnarWriter writer, byte[] types, List<Object[]> rows) throws IOException {
+        for (Object[] row : rows) {
+            for (int c = 0; c < types.length; c++) {
+                switch (types[c]) {
+                    case ColumnarWriter.LONG:
+                        writer.putLong(c, (Long) row[c]);
+                        break;
+                    case ColumnarWriter.DOUBLE:
+                        writer.putDouble(c, (Double) row[c]);
+                        break;
+                    case ColumnarWriter.BOOLEAN:
+                        writer.putBoolean(c, (Boolean) row[c]);
+                        break;
+                    default:
+                        writer.putString(c, (String) row[c]);
+                }
+            }
+            writer.endRow();
+        }
+    }
+
+    // Dates are epoch milliseconds; 0 when absent (e.g. the return date of an open loan)
+    private static long millis(Date date) {
+        return date == null ? 0L : date.getTime();
+    }
+}
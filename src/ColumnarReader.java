@@ -0,0 +1,132 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+// Reads ".lmc" files written by ColumnarWriter, one column of one row group at a time,
+// so a reader only touches the columns it asks for and never holds more than a row group
+public class ColumnarReader implements Closeable {
+    private final RandomAccessFile file;
+    private final String[] names;
+    private final byte[] types;
+    private final int[] groupRows;
+    private final long[][] offsets; // [group][column]
+    private final long[][] lengths;
+    private long rowCount;
+
+    public ColumnarReader(String path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        long size = file.length();
+        file.seek(0);
+        if (size < 16 || file.readInt() != ColumnarWriter.MAGIC) {
+            file.close();
+            throw new IOException("Not a columnar export: " + path);
+        }
+        file.seek(size - 8);
+        int footerLength = file.readInt();
+        if (file.readInt() != ColumnarWriter.MAGIC) {
+            file.close();
+            throw new IOException("Columnar export is incomplete: " + path);
+        }
+        byte[] footerBytes = new byte[footerLength];
+        file.seek(size - 8 - footerLength);
+        file.readFully(footerBytes);
+
+        DataInputStream footer = new DataInputStream(new ByteArrayInputStream(footerBytes));
+        int columnCount = footer.readInt();
+        names = new String[columnCount];
+        types = new byte[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            names[i] = footer.readUTF();
+            types[i] = footer.readByte();
+        }
+        int groupCount = footer.readInt();
+        groupRows = new int[groupCount];
+        offsets = new long[groupCount][columnCount];
+        lengths = new long[groupCount][columnCount];
+        for (int g = 0; g < groupCount; g++) {
+            groupRows[g] = footer.readInt();
+            rowCount += groupRows[g];
+            for (int c = 0; c < columnCount; c++) {
+                offsets[g][c] = footer.readLong();
+                lengths[g][c] = footer.readLong();
+            }
+        }
+    }
+
+    // Getters
+    public String[] getColumnNames() { return names.clone(); }
+    public long getRowCount() { return rowCount; }
+    public int getRowGroupCount() { return groupRows.length; }
+    public int getRowGroupSize(int group) { return groupRows[group]; }
+
+    public int columnIndex(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No such column: " + name);
+    }
+
+    public long[] readLongs(int group, int column) throws IOException {
+        DataInputStream in = open(group, column, ColumnarWriter.LONG);
+        long[] values = new long[groupRows[group]];
+        long previous = 0;
+        for (int i = 0; i < values.length; i++) {
+            previous += VarInt.unZigZag(VarInt.readVarLong(in));
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    public double[] readDoubles(int group, int column) throws IOException {
+        DataInputStream in = open(group, column, ColumnarWriter.DOUBLE);
+        double[] values = new double[groupRows[group]];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+
+    public boolean[] readBooleans(int group, int column) throws IOException {
+        DataInputStream in = open(group, column, ColumnarWriter.BOOLEAN);
+        boolean[] values = new boolean[groupRows[group]];
+        int bits = 0;
+        for (int i = 0; i < values.length; i++) {
+            if ((i & 7) == 0) {
+                bits = in.readUnsignedByte();
+            }
+            values[i] = (bits & (1 << (i & 7))) != 0;
+        }
+        return values;
+    }
+
+    public String[] readStrings(int group, int column) throws IOException {
+        DataInputStream in = open(group, column, ColumnarWriter.STRING);
+        String[] dictionary = new String[(int) VarInt.readVarLong(in) + 1];
+        for (int i = 1; i < dictionary.length; i++) {
+            byte[] utf8 = new byte[(int) VarInt.readVarLong(in)];
+            in.readFully(utf8);
+            dictionary[i] = new String(utf8, StandardCharsets.UTF_8);
+        }
+        String[] values = new String[groupRows[group]];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = dictionary[(int) VarInt.readVarLong(in)];
+        }
+        return values;
+    }
+
+    private DataInputStream open(int group, int column, byte expected) throws IOException {
+        if (types[column] != expected) {
+            throw new IllegalArgumentException("Column " + names[column] + " has type " + types[column]);
+        }
+        byte[] chunk = new byte[(int) lengths[group][column]];
+        file.seek(offsets[group][column]);
+        file.readFully(chunk);
+        return new DataInputStream(new ByteArrayInputStream(chunk));
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,207 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+// Streaming writer for a small columnar file format (".lmc"), laid out like Parquet without
+// the dependency: rows are buffered column by column for one row group, then each column is
+// written contiguously. Memory use is one row group, however many rows the file ends up with.
+//
+// File:      "LMCF" | row group* | footer | footer length (int) | "LMCF"
+// Footer:    column count, (name, type)*, row group count, (row count, (offset, length)* per column)*
+// Columns:   LONG    zig-zag varint deltas from the previous row
+//            DOUBLE  8-byte IEEE values
+//            BOOLEAN bit-packed, first row in the lowest bit
+//            STRING  per-group dictionary (count, UTF-8 entries) then a varint id per row, 0 = null
+public class ColumnarWriter implements Closeable {
+    public static final int MAGIC = 0x4C4D4346; // "LMCF"
+    public static final byte LONG = 1;
+    public static final byte DOUBLE = 2;
+    public static final byte BOOLEAN = 3;
+    public static final byte STRING = 4;
+    public static final int DEFAULT_ROW_GROUP = 65536;
+
+    private final DataOutputStream out;
+    private final String[] names;
+    private final byte[] types;
+    private final int rowGroupSize;
+    private final Column[] columns;
+    private final List<long[]> groupIndex; // Per group: row count, then offset/length per column
+    private long position;
+    private int groupRows;
+    private long totalRows;
+
+    public ColumnarWriter(String path, String[] names, byte[] types) throws IOException {
+        this(path, names, types, DEFAULT_ROW_GROUP);
+    }
+
+    public ColumnarWriter(String path, String[] names, byte[] types, int rowGroupSize) throws IOException {
+        if (names.length != types.length) {
+            throw new IllegalArgumentException("Column names and types differ in length");
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+        this.names = names.clone();
+        this.types = types.clone();
+        this.rowGroupSize = rowGroupSize;
+        this.columns = new Column[names.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Column(types[i]);
+        }
+        this.groupIndex = new ArrayList<>();
+        out.writeInt(MAGIC);
+        position = 4;
+    }
+
+    // One value per column, in column order, then endRow()
+    public void putLong(int column, long value) {
+        columns[column].putLong(value);
+    }
+
+    public void putDouble(int column, double value) {
+        columns[column].putDouble(value);
+    }
+
+    public void putBoolean(int column, boolean value) {
+        columns[column].putBoolean(value);
+    }
+
+    public void putString(int column, String value) {
+        columns[column].putString(value);
+    }
+
+    public void endRow() throws IOException {
+        groupRows++;
+        totalRows++;
+        if (groupRows == rowGroupSize) {
+            flushGroup();
+        }
+    }
+
+    public long getRowCount() {
+        return totalRows;
+    }
+
+    private void flushGroup() throws IOException {
+        if (groupRows == 0) {
+            return;
+        }
+        long[] entry = new long[1 + 2 * columns.length];
+        entry[0] = groupRows;
+        for (int i = 0; i < columns.length; i++) {
+            long length = columns[i].writeTo(out);
+            entry[1 + 2 * i] = position;
+            entry[2 + 2 * i] = length;
+            position += length;
+            columns[i].reset();
+        }
+        groupIndex.add(entry);
+        groupRows = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushGroup();
+        ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+        DataOutputStream footer = new DataOutputStream(footerBytes);
+        footer.writeInt(names.length);
+        for (int i = 0; i < names.length; i++) {
+            footer.writeUTF(names[i]);
+            footer.writeByte(types[i]);
+        }
+        footer.writeInt(groupIndex.size());
+        for (long[] entry : groupIndex) {
+            footer.writeInt((int) entry[0]);
+            for (int i = 1; i < entry.length; i++) {
+                footer.writeLong(entry[i]);
+            }
+        }
+        footer.flush();
+        footerBytes.writeTo(out);
+        out.writeInt(footerBytes.size());
+        out.writeInt(MAGIC);
+        out.close();
+    }
+
+    // Buffer for one column of the current row group
+    private static class Column {
+        private final byte type;
+        private final ByteArrayOutputStream values = new ByteArrayOutputStream();
+        private final HashMap<String, Integer> dictionary = new HashMap<>();
+        private final List<String> entries = new ArrayList<>();
+        private long previous;
+        private int bits;
+        private int bitCount;
+
+        Column(byte type) {
+            this.type = type;
+        }
+
+        void putLong(long value) {
+            VarInt.writeVarLong(values, VarInt.zigZag(value - previous));
+            previous = value;
+        }
+
+        void putDouble(double value) {
+            long bitsValue = Double.doubleToLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                values.write((int) (bitsValue >>> shift));
+            }
+        }
+
+        void putBoolean(boolean value) {
+            if (value) {
+                bits |= 1 << bitCount;
+            }
+            if (++bitCount == 8) {
+                values.write(bits);
+                bits = 0;
+                bitCount = 0;
+            }
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                VarInt.writeVarLong(values, 0);
+                return;
+            }
+            Integer id = dictionary.get(value);
+            if (id == null) {
+                id = entries.size() + 1;
+                dictionary.put(value, id);
+                entries.add(value);
+            }
+            VarInt.writeVarLong(values, id);
+        }
+
+        // Write the buffered group and return the number of bytes written
+        long writeTo(DataOutputStream out) throws IOException {
+            long length = 0;
+            if (type == BOOLEAN && bitCount > 0) {
+                values.write(bits);
+            }
+            if (type == STRING) {
+                ByteArrayOutputStream header = new ByteArrayOutputStream();
+                VarInt.writeVarLong(header, entries.size());
+                for (String entry : entries) {
+                    byte[] utf8 = entry.getBytes(StandardCharsets.UTF_8);
+                    VarInt.writeVarLong(header, utf8.length);
+                    header.write(utf8, 0, utf8.length);
+                }
+                header.writeTo(out);
+                length += header.size();
+            }
+            values.writeTo(out);
+            return length + values.size();
+        }
+
+        void reset() {
+            values.reset();
+            dictionary.clear();
+            entries.clear();
+            previous = 0;
+            bits = 0;
+            bitCount = 0;
+        }
+    }
+}
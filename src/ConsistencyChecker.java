@@ -0,0 +1,425 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Integrity checker for the circulation state. Book counters, book borrower lists, member
+// records, loan records, holds and waiting queues are all updated separately, so they can drift.
+//
+// The library is copied in small batches, each under the library lock, so desk traffic runs
+// between batches. The copy is then checked in parallel, one fork-join task per range of books
+// or members. Batches are taken at different moments and may disagree only because a borrow
+// happened in between, so every suspect book and member is copied again in a single batch and
+// checked again. Only issues that survive that second check are reported.
+//
+// check() covers the whole catalog, which hydrates every record of a memory-mapped store.
+// The checker also listens to the library's events and remembers which books and members
+// changed; checkChanged() covers only those (plus the records they point at), so routine runs
+// cost as much as the traffic since the last run, not the catalog size. start() runs
+// checkChangedAndRepair() in the background; the console runs the full check on demand.
+public class ConsistencyChecker implements LibraryListener {
+    private static final int SNAPSHOT_BATCH = 256; // Entries copied per lock acquisition
+    private static final int TASK_THRESHOLD = 512; // Entries checked per fork-join leaf
+
+    private final Library library;
+    private final ForkJoinPool pool;
+    private final Set<String> dirtyBooks;   // ISBNs touched by events since the last check
+    private final Set<String> dirtyMembers; // MemberIDs touched by events since the last check
+    private ScheduledExecutorService timer;
+
+    public ConsistencyChecker(Library library) {
+        this(library, ForkJoinPool.commonPool());
+    }
+
+    public ConsistencyChecker(Library library, ForkJoinPool pool) {
+        this.library = library;
+        this.pool = pool;
+        this.dirtyBooks = ConcurrentHashMap.newKeySet();
+        this.dirtyMembers = ConcurrentHashMap.newKeySet();
+        library.addListener(this);
+    }
+
+    @Override
+    public void onEvent(CirculationEvent event) {
+        if (event.getIsbn() != null) {
+            dirtyBooks.add(event.getIsbn());
+        }
+        if (event.getMemberId() != null) {
+            dirtyMembers.add(event.getMemberId());
+        }
+    }
+
+    // Start the single background thread: an incremental check-and-repair every interval
+    public synchronized void start(long intervalMillis) {
+        if (timer != null) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "consistency-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(this::runScheduled, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.shutdown();
+            timer = null;
+        }
+    }
+
+    // An exception would cancel the schedule, so it is reported and the next run goes ahead
+    private void runScheduled() {
+        try {
+            int repaired = checkChangedAndRepair();
+            if (repaired > 0 && !library.isQuiet()) {
+                System.out.println("Consistency check repaired " + repaired + " issue(s)");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Consistency check failed: " + e.getMessage());
+        }
+    }
+
+    // Copy of one book's circulation fields
+    private static final class BookState {
+        final String isbn;
+        final int total;
+        final int available;
+        final int held;
+        final String[] borrowers;
+        final String[] queue;
+
+        BookState(Book book) {
+            isbn = book.getIsbn();
+            total = book.getTotalCopies();
+            available = book.getAvailableCopies();
+            held = book.getHeldCopies();
+            borrowers = book.getCurrentBorrowers().toArray(new String[0]);
+            queue = book.getBorrowersQueue().toArray(new String[0]);
+        }
+    }
+
+    // Copy of one member's borrowed ISBNs and open loan ISBNs
+    private static final class MemberState {
+        final String memberId;
+        final Set<String> borrowed;
+        final Set<String> openLoans;
+
+        MemberState(Member member, LoanStore loans) {
+            memberId = member.getMemberId();
+            borrowed = new HashSet<>(member.getBorrowedBooks().keySet());
+            openLoans = new HashSet<>();
+            for (Transaction loan : loans.openLoansFor(memberId)) {
+                openLoans.add(loan.getBookIsbn());
+            }
+        }
+    }
+
+    private static final class Snapshot {
+        final HashMap<String, BookState> books = new HashMap<>();
+        final HashMap<String, MemberState> members = new HashMap<>();
+        final HashMap<String, Integer> heldByIsbn = new HashMap<>();
+        final HashSet<String> holds = new HashSet<>(); // memberId + "|" + isbn
+
+        void addHolds(List<Hold> active) {
+            heldByIsbn.clear();
+            holds.clear();
+            for (Hold hold : active) {
+                heldByIsbn.merge(hold.getIsbn(), 1, Integer::sum);
+                holds.add(hold.getMemberId() + "|" + hold.getIsbn());
+            }
+        }
+    }
+
+    // Full check; nothing is changed
+    public List<ConsistencyIssue> check() {
+        long start = System.nanoTime();
+        List<String> isbns = new ArrayList<>();
+        List<String> memberIds = new ArrayList<>();
+        synchronized (library) {
+            dirtyBooks.clear(); // Everything is covered by this run
+            dirtyMembers.clear();
+            library.getCatalog().forEachIsbn(isbns::add);
+            library.getCatalog().forEachMemberId(memberIds::add);
+        }
+        return check(takeSnapshot(isbns, memberIds, false), start);
+    }
+
+    // Check only the books and members changed since the last check; nothing is changed
+    public List<ConsistencyIssue> checkChanged() {
+        long start = System.nanoTime();
+        return check(takeSnapshot(drain(dirtyBooks), drain(dirtyMembers), true), start);
+    }
+
+    private static List<String> drain(Set<String> dirty) {
+        List<String> keys = new ArrayList<>();
+        for (Iterator<String> it = dirty.iterator(); it.hasNext(); ) {
+            keys.add(it.next());
+            it.remove();
+        }
+        return keys;
+    }
+
+    private List<ConsistencyIssue> check(Snapshot snapshot, long start) {
+        BookState[] books = snapshot.books.values().toArray(new BookState[0]);
+        MemberState[] members = snapshot.members.values().toArray(new MemberState[0]);
+        List<ConsistencyIssue> candidates = new ArrayList<>(pool.invoke(new BookTask(snapshot, books, 0, books.length)));
+        candidates.addAll(pool.invoke(new MemberTask(snapshot, members, 0, members.length)));
+
+        List<ConsistencyIssue> issues = candidates.isEmpty() ? candidates : confirm(candidates);
+        if (!library.isQuiet()) {
+            System.out.println("Consistency check: " + books.length + " books, " + members.length + " members, " +
+                    issues.size() + " issues (" + (System.nanoTime() - start) / 1_000_000 + " ms)");
+        }
+        return issues;
+    }
+
+    // Check, then apply every proposed repair; returns the number applied
+    public int checkAndRepair() {
+        return repair(check());
+    }
+
+    public int checkChangedAndRepair() {
+        return repair(checkChanged());
+    }
+
+    // Apply the proposed repairs of issues found earlier; returns the number applied
+    public int repair(List<ConsistencyIssue> issues) {
+        int repaired = 0;
+        for (ConsistencyIssue issue : issues) {
+            if (library.repair(issue)) {
+                repaired++;
+            }
+        }
+        return repaired;
+    }
+
+    // Copy the given books and members in batches. A partial copy also takes, in the same batch,
+    // the records each entry points at, so the check does not flag them as missing.
+    private Snapshot takeSnapshot(List<String> isbns, List<String> memberIds, boolean withRelated) {
+        Snapshot snapshot = new Snapshot();
+        for (int from = 0; from < isbns.size(); from += SNAPSHOT_BATCH) {
+            List<String> batch = isbns.subList(from, Math.min(from + SNAPSHOT_BATCH, isbns.size()));
+            synchronized (library) {
+                if (withRelated) {
+                    copyWithRelated(snapshot, batch, new HashSet<>());
+                } else {
+                    copyBooks(snapshot, batch);
+                }
+            }
+        }
+        for (int from = 0; from < memberIds.size(); from += SNAPSHOT_BATCH) {
+            List<String> batch = memberIds.subList(from, Math.min(from + SNAPSHOT_BATCH, memberIds.size()));
+            synchronized (library) {
+                if (withRelated) {
+                    copyWithRelated(snapshot, Collections.emptyList(), new HashSet<>(batch));
+                } else {
+                    copyMembers(snapshot, batch);
+                }
+            }
+        }
+        snapshot.addHolds(library.getReservations().getActiveHolds());
+        return snapshot;
+    }
+
+    // Books, their borrowers and queued members, then members and the books they hold.
+    // memberIds is extended with the members reached from the books.
+    private void copyWithRelated(Snapshot snapshot, Collection<String> isbns, Set<String> memberIds) {
+        copyBooks(snapshot, isbns);
+        for (String isbn : isbns) {
+            BookState book = snapshot.books.get(isbn);
+            if (book != null) {
+                memberIds.addAll(Arrays.asList(book.borrowers));
+                memberIds.addAll(Arrays.asList(book.queue));
+            }
+        }
+        copyMembers(snapshot, memberIds);
+        for (String memberId : memberIds) {
+            MemberState member = snapshot.members.get(memberId);
+            if (member == null) {
+                continue;
+            }
+            for (String isbn : member.borrowed) {
+                if (!snapshot.books.containsKey(isbn)) {
+                    copyBooks(snapshot, Collections.singletonList(isbn));
+                }
+            }
+        }
+    }
+
+    private void copyBooks(Snapshot snapshot, Collection<String> isbns) {
+        for (String isbn : isbns) {
+            Book book = library.getCatalog().findBook(isbn);
+            if (book != null) {
+                snapshot.books.put(isbn, new BookState(book));
+            }
+        }
+    }
+
+    private void copyMembers(Snapshot snapshot, Collection<String> memberIds) {
+        for (String memberId : memberIds) {
+            Member member = library.getCatalog().findMember(memberId);
+            if (member != null) {
+                snapshot.members.put(memberId, new MemberState(member, library.getLoans()));
+            }
+        }
+    }
+
+    // Re-check every suspect book and member (and whatever they point at) from one consistent copy
+    private List<ConsistencyIssue> confirm(List<ConsistencyIssue> candidates) {
+        Set<String> isbns = new HashSet<>();
+        Set<String> memberIds = new HashSet<>();
+        for (ConsistencyIssue issue : candidates) {
+            isbns.add(issue.getIsbn());
+            if (issue.getMemberId() != null) {
+                memberIds.add(issue.getMemberId());
+            }
+        }
+
+        Snapshot snapshot = new Snapshot();
+        synchronized (library) {
+            copyWithRelated(snapshot, isbns, memberIds);
+            snapshot.addHolds(library.getReservations().getActiveHolds());
+        }
+
+        List<ConsistencyIssue> confirmed = new ArrayList<>();
+        for (String isbn : isbns) {
+            BookState book = snapshot.books.get(isbn);
+            if (book != null) {
+                checkBook(snapshot, book, confirmed);
+            }
+        }
+        for (String memberId : memberIds) {
+            MemberState member = snapshot.members.get(memberId);
+            if (member != null) {
+                checkMember(snapshot, member, confirmed);
+            }
+        }
+        return confirmed;
+    }
+
+    // Book side: counters, borrower list against members and loans, queue entries
+    private static void checkBook(Snapshot snapshot, BookState book, List<ConsistencyIssue> issues) {
+        int held = snapshot.heldByIsbn.getOrDefault(book.isbn, 0);
+        if (book.held != held) {
+            issues.add(new ConsistencyIssue(ConsistencyIssue.HOLD_COUNT_MISMATCH, book.isbn, null,
+                    "held copies " + book.held + " but " + held + " active holds",
+                    "recount held copies from active holds"));
+        }
+        int borrowed = book.total - book.available - book.held;
+        if (borrowed != book.borrowers.length || book.available < 0 || book.available > book.total) {
+            issues.add(new ConsistencyIssue(ConsistencyIssue.COPY_COUNT_MISMATCH, book.isbn, null,
+                    "total " + book.total + " - available " + book.available + " - held " + book.held +
+                            " != " + book.borrowers.length + " borrowers",
+                    "recount available copies from the borrower list"));
+        }
+        for (String memberId : book.borrowers) {
+            MemberState member = snapshot.members.get(memberId);
+            if (member == null || !member.borrowed.contains(book.isbn)) {
+                boolean keep = member != null && member.openLoans.contains(book.isbn);
+                issues.add(new ConsistencyIssue(ConsistencyIssue.BORROWER_NOT_ON_MEMBER, book.isbn, memberId,
+                        member == null ? "borrower is not a member" : "member record does not list the book",
+                        keep ? "add the book to the member record (open loan exists)"
+                                : "remove the borrower from the book"));
+            } else if (!member.openLoans.contains(book.isbn)) {
+                issues.add(new ConsistencyIssue(ConsistencyIssue.MISSING_LOAN_RECORD, book.isbn, memberId,
+                        "borrowed on both sides but no open loan", "open a loan record dated today"));
+            }
+        }
+        for (String memberId : book.queue) {
+            MemberState member = snapshot.members.get(memberId);
+            String reason = member == null ? "queued member does not exist"
+                    : member.borrowed.contains(book.isbn) ? "queued member already has the book"
+                    : snapshot.holds.contains(memberId + "|" + book.isbn) ? "queued member already has a hold"
+                    : null;
+            if (reason != null) {
+                issues.add(new ConsistencyIssue(ConsistencyIssue.STALE_QUEUE_ENTRY, book.isbn, memberId,
+                        reason, "remove the member from the queue"));
+            }
+        }
+    }
+
+    // Member side: every borrowed ISBN must exist and list the member as a borrower
+    private static void checkMember(Snapshot snapshot, MemberState member, List<ConsistencyIssue> issues) {
+        for (String isbn : member.borrowed) {
+            BookState book = snapshot.books.get(isbn);
+            if (book == null || !Arrays.asList(book.borrowers).contains(member.memberId)) {
+                boolean keep = book != null && member.openLoans.contains(isbn);
+                issues.add(new ConsistencyIssue(ConsistencyIssue.LOAN_NOT_ON_BOOK, isbn, member.memberId,
+                        book == null ? "borrowed book is not in the catalog" : "book does not list the borrower",
+                        keep ? "add the member to the book's borrowers (open loan exists)"
+                                : "remove the book from the member record"));
+            }
+        }
+    }
+
+    private static final class BookTask extends RecursiveTask<List<ConsistencyIssue>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Snapshot snapshot;
+        private final BookState[] books;
+        private final int from;
+        private final int to;
+
+        BookTask(Snapshot snapshot, BookState[] books, int from, int to) {
+            this.snapshot = snapshot;
+            this.books = books;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<ConsistencyIssue> compute() {
+            if (to - from <= TASK_THRESHOLD) {
+                List<ConsistencyIssue> issues = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    checkBook(snapshot, books[i], issues);
+                }
+                return issues;
+            }
+            int mid = (from + to) >>> 1;
+            BookTask left = new BookTask(snapshot, books, from, mid);
+            left.fork();
+            List<ConsistencyIssue> issues = new BookTask(snapshot, books, mid, to).compute();
+            issues.addAll(left.join());
+            return issues;
+        }
+    }
+
+    private static final class MemberTask extends RecursiveTask<List<ConsistencyIssue>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Snapshot snapshot;
+        private final MemberState[] members;
+        private final int from;
+        private final int to;
+
+        MemberTask(Snapshot snapshot, MemberState[] members, int from, int to) {
+            this.snapshot = snapshot;
+            this.members = members;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<ConsistencyIssue> compute() {
+            if (to - from <= TASK_THRESHOLD) {
+                List<ConsistencyIssue> issues = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    checkMember(snapshot, members[i], issues);
+                }
+                return issues;
+            }
+            int mid = (from + to) >>> 1;
+            MemberTask left = new MemberTask(snapshot, members, from, mid);
+            left.fork();
+            List<ConsistencyIssue> issues = new MemberTask(snapshot, members, mid, to).compute();
+            issues.addAll(left.join());
+            return issues;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+// One invariant violation found by the ConsistencyChecker, with the repair it proposes
+public final class ConsistencyIssue {
+    public static final String COPY_COUNT_MISMATCH = "COPY_COUNT_MISMATCH";         // total - available - held != borrowers
+    public static final String BORROWER_NOT_ON_MEMBER = "BORROWER_NOT_ON_MEMBER";   // Book lists a borrower the member side lacks
+    public static final String LOAN_NOT_ON_BOOK = "LOAN_NOT_ON_BOOK";               // Member holds a book that does not list them
+    public static final String MISSING_LOAN_RECORD = "MISSING_LOAN_RECORD";         // Borrowed with no open Transaction
+    public static final String STALE_QUEUE_ENTRY = "STALE_QUEUE_ENTRY";             // Queued member is unknown or already has the book
+    public static final String HOLD_COUNT_MISMATCH = "HOLD_COUNT_MISMATCH";         // Book.heldCopies != active holds
+
+    private final String type;
+    private final String isbn;
+    private final String memberId;
+    private final String detail;
+    private final String repair;
+
+    public ConsistencyIssue(String type, String isbn, String memberId, String detail, String repair) {
+        this.type = type;
+        this.isbn = isbn;
+        this.memberId = memberId;
+        this.detail = detail;
+        this.repair = repair;
+    }
+
+    // Getters
+    public String getType() { return type; }
+    public String getIsbn() { return isbn; }
+    public String getMemberId() { return memberId; }
+    public String getDetail() { return detail; }
+    public String getRepair() { return repair; }
+
+    @Override
+    public String toString() {
+        return "ConsistencyIssue{" +
+                "Type=" + type +
+                ", ISBN='" + isbn + '\'' +
+                (memberId != null ? ", Member='" + memberId + '\'' : "") +
+                ", Detail='" + detail + '\'' +
+                ", Repair='" + repair + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,267 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Append-only binary circulation log: the audit trail and the source for replay.
+// Each record is a type byte, zig-zag varint deltas for sequence and timestamp, strings
+// dictionary-encoded (first use writes the text, later uses a small integer), then the copies
+// count, value and extra string, so a typical borrow/return record is a handful of bytes.
+public class EventLog implements LibraryListener, Closeable {
+    private static final int MAGIC = 0x4C4D5332;        // "LMS2"
+    private static final int FIRST_FORMAT = 0x4C4D5345; // "LMSE": records without value/extra
+    private static final String[] TYPES = {
+            CirculationEvent.ADD_BOOK, CirculationEvent.ADD_MEMBER, CirculationEvent.BORROW,
+            CirculationEvent.RETURN, CirculationEvent.HOLD_EXPIRED, CirculationEvent.HOLD_PLACED,
+            CirculationEvent.RENEW, CirculationEvent.MEMBER_UPDATED, CirculationEvent.POLICY_LOADED,
+            CirculationEvent.REPAIRED, CirculationEvent.BOOK_UPDATED // New types go last so existing logs keep their codes
+    };
+
+    private final DataOutputStream out;
+    private final HashMap<String, Integer> dictionary;
+    private long lastSequence;
+    private long lastTimestamp;
+    private long eventCount;
+
+    // Open for appending; an existing log is scanned once to restore the dictionary, and a
+    // record torn by a crash mid-write is cut off so new records follow the last complete one
+    public EventLog(String path) throws IOException {
+        this(path, event -> { });
+    }
+
+    // Same, handing every complete record to the visitor during that scan, so startup can
+    // replay and seed from the log without reading it again
+    public EventLog(String path, Consumer<CirculationEvent> visitor) throws IOException {
+        dictionary = new HashMap<>();
+        File file = new File(path);
+        boolean exists = file.exists() && file.length() > 0;
+        if (exists) {
+            Decoder decoder = new Decoder();
+            long validLength = 4;
+            CountingInputStream counter = new CountingInputStream(new FileInputStream(file));
+            try (DataInputStream in = new DataInputStream(counter)) {
+                checkMagic(in.readInt(), path);
+                while (true) {
+                    CirculationEvent event = decoder.read(in);
+                    validLength = counter.count;
+                    lastSequence = event.getSequence();
+                    lastTimestamp = event.getTimestamp();
+                    for (int i = dictionary.size(); i < decoder.strings.size(); i++) {
+                        dictionary.put(decoder.strings.get(i), i);
+                    }
+                    eventCount++;
+                    visitor.accept(event);
+                }
+            } catch (EOFException e) {
+                // End of log
+            }
+            if (validLength < file.length()) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(validLength);
+                }
+                System.out.println("Truncated incomplete record at end of circulation log.");
+            }
+        }
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path, true)));
+        if (!exists) {
+            out.writeInt(MAGIC);
+            out.flush();
+        }
+    }
+
+    @Override
+    public synchronized void onEvent(CirculationEvent event) {
+        try {
+            write(event);
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("Failed to write circulation log: " + e.getMessage());
+        }
+    }
+
+    // A bulk operation's events go out in one flush
+    @Override
+    public synchronized void onEvents(List<CirculationEvent> events) {
+        try {
+            for (CirculationEvent event : events) {
+                write(event);
+            }
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("Failed to write circulation log: " + e.getMessage());
+        }
+    }
+
+    private void write(CirculationEvent event) throws IOException {
+        out.writeByte(typeCode(event.getType()));
+        VarInt.writeVarLong(out, VarInt.zigZag(event.getSequence() - lastSequence));
+        VarInt.writeVarLong(out, VarInt.zigZag(event.getTimestamp() - lastTimestamp));
+        writeString(event.getMemberId());
+        writeString(event.getIsbn());
+        writeString(event.getName());
+        writeString(event.getDetail());
+        VarInt.writeVarLong(out, VarInt.zigZag(event.getCopies()));
+        VarInt.writeVarLong(out, VarInt.zigZag(event.getValue()));
+        writeString(event.getExtra());
+        lastSequence = event.getSequence();
+        lastTimestamp = event.getTimestamp();
+        eventCount++;
+    }
+
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+
+    // Sequence of the last record in the log; new events continue from here
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    // Stream every event in the log, in order
+    public static void forEach(String path, Consumer<CirculationEvent> visitor) throws IOException {
+        scan(path, event -> {
+            visitor.accept(event);
+            return true;
+        });
+    }
+
+    // Stream events in order until the visitor returns false; the rest of the file is not read
+    public static void scan(String path, Predicate<CirculationEvent> visitor) throws IOException {
+        Decoder decoder = new Decoder();
+        try (DataInputStream in = openForRead(path)) {
+            while (true) {
+                CirculationEvent event;
+                try {
+                    event = decoder.read(in);
+                } catch (EOFException e) {
+                    return;
+                }
+                if (!visitor.test(event)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    public static List<CirculationEvent> readAll(String path) throws IOException {
+        List<CirculationEvent> events = new ArrayList<>();
+        forEach(path, events::add);
+        return events;
+    }
+
+    private static DataInputStream openForRead(String path) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16));
+        try {
+            checkMagic(in.readInt(), path);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return in;
+    }
+
+    private static void checkMagic(int magic, String path) throws IOException {
+        if (magic == FIRST_FORMAT) {
+            throw new IOException("Circulation log " + path + " was written in the older record format " +
+                    "without due dates; move it aside to start a new log");
+        }
+        if (magic != MAGIC) {
+            throw new IOException("Not a circulation log: " + path);
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(new BufferedInputStream(in, 1 << 16));
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            VarInt.writeVarLong(out, 0);
+            return;
+        }
+        Integer id = dictionary.get(value);
+        if (id != null) {
+            VarInt.writeVarLong(out, id + 2);
+        } else {
+            VarInt.writeVarLong(out, 1);
+            out.writeUTF(value);
+            dictionary.put(value, dictionary.size());
+        }
+    }
+
+    private static int typeCode(String type) {
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i].equals(type)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown event type: " + type);
+    }
+
+    // Reading state: the string dictionary and the previous record's sequence and timestamp
+    private static class Decoder {
+        private final ArrayList<String> strings = new ArrayList<>();
+        private long lastSequence;
+        private long lastTimestamp;
+
+        CirculationEvent read(DataInputStream in) throws IOException {
+            int code = in.readUnsignedByte();
+            if (code >= TYPES.length) {
+                throw new IOException("Corrupt circulation log: type " + code);
+            }
+            lastSequence += VarInt.unZigZag(VarInt.readVarLong(in));
+            lastTimestamp += VarInt.unZigZag(VarInt.readVarLong(in));
+            String memberId = readString(in);
+            String isbn = readString(in);
+            String name = readString(in);
+            String detail = readString(in);
+            int copies = (int) VarInt.unZigZag(VarInt.readVarLong(in));
+            long value = VarInt.unZigZag(VarInt.readVarLong(in));
+            String extra = readString(in);
+            return new CirculationEvent(lastSequence, TYPES[code], lastTimestamp, memberId, isbn, name, detail,
+                    copies, value, extra);
+        }
+
+        private String readString(DataInputStream in) throws IOException {
+            long ref = VarInt.readVarLong(in);
+            if (ref == 0) {
+                return null;
+            }
+            if (ref == 1) {
+                String value = in.readUTF();
+                strings.add(value);
+                return value;
+            }
+            return strings.get((int) (ref - 2));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Date;
+import java.util.List;
+
+// Local stand-in for an SMTP gateway: each delivered batch is appended to a file as one "email"
+public class FileNotificationChannel implements NotificationChannel {
+    private final String path;
+
+    public FileNotificationChannel(String path) {
+        this.path = path;
+    }
+
+    @Override
+    public synchronized void send(String recipient, List<Notification> batch) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(path, true))) {
+            out.println("To: " + recipient);
+            out.println("Date: " + new Date());
+            out.println("Subject: " + subjectFor(batch));
+            out.println();
+            for (Notification notification : batch) {
+                out.println("- " + notification.getMessage());
+            }
+            out.println();
+            if (out.checkError()) { // PrintWriter swallows write errors; report them so the batch is retried
+                throw new IOException("Failed to write notifications to " + path);
+            }
+        }
+    }
+
+    private static String subjectFor(List<Notification> batch) {
+        String type = batch.get(0).getType();
+        if (Notification.OVERDUE.equals(type)) {
+            return batch.size() == 1 ? "1 overdue item" : batch.size() + " overdue items";
+        }
+        return batch.size() == 1 ? "Your hold is ready for pickup" : batch.size() + " holds are ready for pickup";
+    }
+}
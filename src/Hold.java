@@ -0,0 +1,35 @@
+import java.util.Date;
+
+// A returned copy set aside on the pickup shelf for one member until it expires
+public final class Hold {
+    private final String memberId;
+    private final String isbn;
+    private final long placedAt;
+    private final long expiresAt;
+
+    public Hold(String memberId, String isbn, long placedAt, long expiresAt) {
+        this.memberId = memberId;
+        this.isbn = isbn;
+        this.placedAt = placedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters
+    public String getMemberId() { return memberId; }
+    public String getIsbn() { return isbn; }
+    public long getPlacedAt() { return placedAt; }
+    public long getExpiresAt() { return expiresAt; }
+
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+
+    @Override
+    public String toString() {
+        return "Hold{" +
+                "Member='" + memberId + '\'' +
+                ", ISBN='" + isbn + '\'' +
+                ", Expires=" + new Date(expiresAt) +
+                '}';
+    }
+}
@@ -0,0 +1,44 @@
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.function.Consumer;
+
+// Default backend: everything on the heap, O(1) HashMap lookups
+public class InMemoryCatalogStore implements CatalogStore {
+    private HashMap<String, Book> books;     // Key: ISBN, Value: Book
+    private HashMap<String, Member> members; // Key: MemberID, Value: Member
+
+    public InMemoryCatalogStore() {
+        books = new HashMap<>();
+        members = new HashMap<>();
+    }
+
+    @Override
+    public Book findBook(String isbn) { return books.get(isbn); }
+
+    @Override
+    public void addBook(Book book) { books.put(book.getIsbn(), book); }
+
+    @Override
+    public Collection<Book> allBooks() { return books.values(); }
+
+    @Override
+    public int bookCount() { return books.size(); }
+
+    @Override
+    public void forEachIsbn(Consumer<String> visitor) { books.keySet().forEach(visitor); }
+
+    @Override
+    public Member findMember(String memberId) { return members.get(memberId); }
+
+    @Override
+    public void addMember(Member member) { members.put(member.getMemberId(), member); }
+
+    @Override
+    public Collection<Member> allMembers() { return members.values(); }
+
+    @Override
+    public int memberCount() { return members.size(); }
+
+    @Override
+    public void forEachMemberId(Consumer<String> visitor) { members.keySet().forEach(visitor); }
+}
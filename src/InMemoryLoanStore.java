@@ -0,0 +1,74 @@
+import java.util.*;
+
+// Default loan backend: full history in insertion order plus an index of open loans
+public class InMemoryLoanStore implements LoanStore {
+    private List<Transaction> loans;                    // Every loan ever issued
+    private HashMap<String, Transaction> openLoans;     // Key: memberId + "|" + isbn
+    private HashMap<String, List<Transaction>> byMember; // Key: MemberID, Value: open loans
+    private HashMap<String, Transaction> openById;      // Key: TransactionID
+
+    public InMemoryLoanStore() {
+        loans = new ArrayList<>();
+        openLoans = new HashMap<>();
+        byMember = new HashMap<>();
+        openById = new HashMap<>();
+    }
+
+    private static String key(String memberId, String isbn) {
+        return memberId + "|" + isbn;
+    }
+
+    @Override
+    public void addLoan(Transaction loan) {
+        loans.add(loan);
+        openLoans.put(key(loan.getMemberId(), loan.getBookIsbn()), loan);
+        byMember.computeIfAbsent(loan.getMemberId(), k -> new ArrayList<>()).add(loan);
+        openById.put(loan.getTransactionId(), loan);
+    }
+
+    @Override
+    public Transaction findOpenLoan(String memberId, String isbn) {
+        return openLoans.get(key(memberId, isbn));
+    }
+
+    @Override
+    public Transaction findOpenLoanById(String transactionId) {
+        return openById.get(transactionId);
+    }
+
+    @Override
+    public void closeLoan(Transaction loan) {
+        openLoans.remove(key(loan.getMemberId(), loan.getBookIsbn()));
+        openById.remove(loan.getTransactionId());
+        List<Transaction> memberLoans = byMember.get(loan.getMemberId());
+        if (memberLoans != null) {
+            memberLoans.remove(loan);
+        }
+    }
+
+    @Override
+    public List<Transaction> openLoansFor(String memberId) {
+        List<Transaction> memberLoans = byMember.get(memberId);
+        return memberLoans == null ? new ArrayList<>() : new ArrayList<>(memberLoans);
+    }
+
+    @Override
+    public Collection<Transaction> openLoans() {
+        return openById.values();
+    }
+
+    @Override
+    public Collection<Transaction> allLoans() {
+        return loans;
+    }
+
+    @Override
+    public int loanCount() {
+        return loans.size();
+    }
+
+    @Override
+    public List<Transaction> loanRange(int from, int to) {
+        return new ArrayList<>(loans.subList(from, to));
+    }
+}
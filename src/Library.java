@@ -1,277 +1,1097 @@
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.function.LongSupplier;
 
-// Transaction class for queue management
-class Transaction {
-    private String type; // "BORROW" or "RETURN"
-    private String memberId;
-    private String isbn;
-    private Date timestamp;
-    
-    public Transaction(String type, String memberId, String isbn) {
-        this.type = type;
-        this.memberId = memberId;
-        this.isbn = isbn;
-        this.timestamp = new Date();
-    }
-    
-    // Getters
-    public String getType() { return type; }
-    public String getMemberId() { return memberId; }
-    public String getIsbn() { return isbn; }
-    public Date getTimestamp() { return timestamp; }
-}
+// Library class: the single circulation engine. Books, members and loans are kept in pluggable
+// stores (CatalogStore / LoanStore); every backend shares the borrow/return rules below.
+public class Library {
+    public static final int HOLD_PICKUP_DAYS = 3;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final double FILTER_FALSE_POSITIVE_RATE = 0.01;
+    private static final int MIN_FILTER_CAPACITY = 1024;
 
-// Book class
-class Book {
-    private String isbn;
-    private String title;
-    private String author;
-    private int totalCopies;
-    private int availableCopies;
-    private Queue<String> waitingQueue; // Queue of member IDs waiting for this book
-    
-    public Book(String isbn, String title, String author, int copies) {
-        this.isbn = isbn;
-        this.title = title;
-        this.author = author;
-        this.totalCopies = copies;
-        this.availableCopies = copies;
-        this.waitingQueue = new LinkedList<>();
-    }
-    
-    // Getters
-    public String getIsbn() { return isbn; }
-    public String getTitle() { return title; }
-    public String getAuthor() { return author; }
-    public int getTotalCopies() { return totalCopies; }
-    public int getAvailableCopies() { return availableCopies; }
-    public Queue<String> getWaitingQueue() { return waitingQueue; }
-    
-    // Methods for managing copies
-    public void decreaseAvailableCopies() {
-        if (availableCopies > 0) {
-            availableCopies--;
-        }
-    }
-    
-    public void increaseAvailableCopies() {
-        if (availableCopies < totalCopies) {
-            availableCopies++;
-        }
-    }
-    
-    // Queue management
-    public void addToQueue(String memberId) {
-        waitingQueue.offer(memberId);
-    }
-    
-    public String getNextFromQueue() {
-        return waitingQueue.poll();
-    }
-    
-    public boolean hasWaitingMembers() {
-        return !waitingQueue.isEmpty();
-    }
-}
+    private CatalogStore catalog; // Books and members
+    private LoanStore loans;      // Issued copies (one Transaction per loan)
+    private ReservationScheduler reservations; // Copies held on the pickup shelf
+    private PolicyEngine policies; // Loan limits, periods and fines
+    private String branch;         // Branch name used in policy decisions
+    private LongSupplier clock;    // Wall clock; replay substitutes event time
+    private List<LibraryListener> listeners; // Notified of every applied state change
+    private long eventSequence;
+    private List<CirculationEvent> pendingEvents; // Collected while a bulk operation runs, then delivered together
+    private RequestDeduplicator requestLog; // Results of recent client requests, for safe retries
+    private BloomFilter bookFilter;   // Known ISBNs: unknown ones are rejected before the store
+    private BloomFilter memberFilter; // Known member IDs
+    private MemberIndex memberIndex;  // Secondary member indexes, built on first query
+    private BookSearchIndex searchIndex; // Typo-tolerant title/author index, built on first fuzzy search
+    private boolean quiet;            // No per-operation console messages (replay, load tests)
 
-// Member class
-class Member {
-    private String memberId;
-    private String name;
-    private String email;
-    private Set<String> borrowedBooks; // Set of ISBNs
-    private List<Book> borrowedBookObjects; // List of Book objects for easier access
-    
-    public Member(String memberId, String name, String email) {
-        this.memberId = memberId;
-        this.name = name;
-        this.email = email;
-        this.borrowedBooks = new HashSet<>();
-        this.borrowedBookObjects = new ArrayList<>();
-    }
-    
-    // Getters
-    public String getMemberId() { return memberId; }
-    public String getName() { return name; }
-    public String getEmail() { return email; }
-    public Set<String> getBorrowedBooks() { return borrowedBooks; }
-    public List<Book> getBorrowedBookObjects() { return borrowedBookObjects; }
-    
-    // Borrow a book
-    public void borrowBook(Book book) {
-        borrowedBooks.add(book.getIsbn());
-        borrowedBookObjects.add(book);
+    public Library() {
+        this(new InMemoryCatalogStore(), new InMemoryLoanStore());
     }
-    
-    // Return a book
-    public boolean returnBook(String isbn) {
-        if (borrowedBooks.remove(isbn)) {
-            borrowedBookObjects.removeIf(book -> book.getIsbn().equals(isbn));
-            return true;
+
+    public Library(CatalogStore catalog, LoanStore loans) {
+        this.catalog = catalog;
+        this.loans = loans;
+        reservations = new ReservationScheduler();
+        policies = new PolicyEngine();
+        policies.setReloadListener(this::policyLoaded);
+        branch = "MAIN";
+        clock = System::currentTimeMillis;
+        listeners = new ArrayList<>();
+        eventSequence = 0;
+        requestLog = new RequestDeduplicator(100000, 10 * 60 * 1000L, 1000L);
+        // A store that saved its filters hands them over; otherwise scan the keys once
+        bookFilter = catalog.savedBookFilter();
+        if (bookFilter == null) {
+            rebuildBookFilter();
+        }
+        memberFilter = catalog.savedMemberFilter();
+        if (memberFilter == null) {
+            rebuildMemberFilter();
         }
-        return false;
     }
-    
-    // Check if member has borrowed a specific book
-    public boolean hasBorrowed(String isbn) {
-        return borrowedBooks.contains(isbn);
+
+    public CatalogStore getCatalog() {
+        return catalog;
     }
-}
 
-// Library class
-public class Library {
-    private HashMap<String, Book> books; // Key: ISBN, Value: Book
-    private HashMap<String, Member> members; // Key: MemberID, Value: Member
-    private Queue<Transaction> transactionQueue; // FIFO for borrow/return requests
+    public LoanStore getLoans() {
+        return loans;
+    }
 
-    public Library() {
-        books = new HashMap<>();
-        members = new HashMap<>();
-        transactionQueue = new LinkedList<>();
+    public ReservationScheduler getReservations() {
+        return reservations;
     }
 
-    // Add a new book
-    public void addBook(String isbn, String title, String author, int copies) {
-        if (books.containsKey(isbn)) {
-            System.out.println("Book with ISBN " + isbn + " already exists!");
+    public PolicyEngine getPolicies() {
+        return policies;
+    }
+
+    public String getBranch() {
+        return branch;
+    }
+
+    public void setBranch(String branch) {
+        this.branch = branch;
+    }
+
+    // Replace the clock (deterministic replay drives it from event timestamps)
+    public void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    public LongSupplier getClock() { return clock; }
+
+    // Silence the per-operation messages; display methods still print
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
+
+    public boolean isQuiet() { return quiet; }
+
+    // Register a listener for applied operations (e.g. replication)
+    public void addListener(LibraryListener listener) {
+        listeners.add(listener);
+    }
+
+    public synchronized long getEventSequence() {
+        return eventSequence;
+    }
+
+    // Continue numbering events after an existing stream (a promoted replica, or a log on restart)
+    public synchronized void setEventSequence(long sequence) {
+        this.eventSequence = sequence;
+    }
+
+    private void publish(String type, String memberId, String isbn, String name, String detail, int copies) {
+        publish(type, memberId, isbn, name, detail, copies, 0, null);
+    }
+
+    private void publish(String type, String memberId, String isbn, String name, String detail, int copies,
+                         long value, String extra) {
+        if (listeners.isEmpty()) {
+            eventSequence++;
             return;
         }
+        CirculationEvent event = new CirculationEvent(++eventSequence, type, clock.getAsLong(),
+                memberId, isbn, name, detail, copies, value, extra);
+        if (pendingEvents != null) {
+            pendingEvents.add(event);
+            return;
+        }
+        for (LibraryListener listener : listeners) {
+            listener.onEvent(event);
+        }
+    }
+
+    // Negative-lookup fast path: unknown keys never reach the store
+    private Book lookupBook(String isbn) {
+        if (!bookFilter.mightContain(isbn)) {
+            return null;
+        }
+        Book book = catalog.findBook(isbn);
+        if (book == null) {
+            bookFilter.recordFalsePositive();
+        }
+        return book;
+    }
+
+    private Member lookupMember(String memberId) {
+        if (!memberFilter.mightContain(memberId)) {
+            return null;
+        }
+        Member member = catalog.findMember(memberId);
+        if (member == null) {
+            memberFilter.recordFalsePositive();
+        }
+        return member;
+    }
+
+    // Filters are sized at twice the current key count and rebuilt from the store when they fill up
+    private void rebuildBookFilter() {
+        BloomFilter filter = new BloomFilter(Math.max(MIN_FILTER_CAPACITY, catalog.bookCount() * 2),
+                FILTER_FALSE_POSITIVE_RATE);
+        catalog.forEachIsbn(filter::put);
+        bookFilter = filter;
+    }
+
+    private void rebuildMemberFilter() {
+        BloomFilter filter = new BloomFilter(Math.max(MIN_FILTER_CAPACITY, catalog.memberCount() * 2),
+                FILTER_FALSE_POSITIVE_RATE);
+        catalog.forEachMemberId(filter::put);
+        memberFilter = filter;
+    }
+
+    public BloomFilter getBookFilter() {
+        return bookFilter;
+    }
+
+    public BloomFilter getMemberFilter() {
+        return memberFilter;
+    }
+
+    // Add a new book; false if the ISBN is already in the catalog
+    public synchronized boolean addBook(String isbn, String title, String author, int copies) {
+        if (lookupBook(isbn) != null) {
+            if (!quiet) {
+                System.out.println("Book with ISBN " + isbn + " already exists!");
+            }
+            return false;
+        }
         Book newBook = new Book(isbn, title, author, copies);
-        books.put(isbn, newBook);
-        System.out.println("Book added successfully: " + title);
+        catalog.addBook(newBook);
+        bookFilter.put(isbn);
+        if (bookFilter.isSaturated()) {
+            rebuildBookFilter();
+        }
+        if (searchIndex != null) {
+            synchronized (searchIndex) {
+                searchIndex.update(newBook);
+            }
+        }
+        publish(CirculationEvent.ADD_BOOK, null, isbn, title, author, copies);
+        if (!quiet) {
+            System.out.println("Book added successfully: " + title);
+        }
+        return true;
     }
 
-    // Register a new member
-    public void addMember(String memberId, String name, String email) {
-        if (members.containsKey(memberId)) {
-            System.out.println("Member with ID " + memberId + " already exists!");
-            return;
+    // Register a new member; false if the ID is already taken
+    public synchronized boolean addMember(String memberId, String name, String email) {
+        if (lookupMember(memberId) != null) {
+            if (!quiet) {
+                System.out.println("Member with ID " + memberId + " already exists!");
+            }
+            return false;
         }
         Member newMember = new Member(memberId, name, email);
-        members.put(memberId, newMember);
-        System.out.println("Member registered successfully: " + name);
+        catalog.addMember(newMember);
+        memberFilter.put(memberId);
+        if (memberFilter.isSaturated()) {
+            rebuildMemberFilter();
+        }
+        reindex(newMember);
+        publish(CirculationEvent.ADD_MEMBER, memberId, null, name, email, 0);
+        if (!quiet) {
+            System.out.println("Member registered successfully: " + name);
+        }
+        return true;
     }
 
     // Borrow a book
-    public boolean borrowBook(String memberId, String isbn) {
-        // Add transaction to queue
-        transactionQueue.offer(new Transaction("BORROW", memberId, isbn));
-        
-        if (!members.containsKey(memberId)) {
-            System.out.println("Member not found!");
+    public synchronized boolean borrowBook(String memberId, String isbn) {
+        return borrow(memberId, isbn, -1, 0, null);
+    }
+
+    // Apply a borrow decided elsewhere (replica or replay) with the limit, due date and loan ID it was given
+    public synchronized boolean applyBorrow(String memberId, String isbn, int limit, long dueAt, String transactionId) {
+        return borrow(memberId, isbn, limit, dueAt, transactionId);
+    }
+
+    // A negative limit, zero due date or null loan ID means "decide here from the current policy and clock"
+    private boolean borrow(String memberId, String isbn, int givenLimit, long givenDue, String givenId) {
+        Member member = lookupMember(memberId);
+        if (member == null) {
+            if (!quiet) {
+                System.out.println("Member not found!");
+            }
+            return false;
+        }
+        Book book = lookupBook(isbn);
+        if (book == null) {
+            if (!quiet) {
+                System.out.println("Book not found!");
+            }
             return false;
         }
-        if (!books.containsKey(isbn)) {
-            System.out.println("Book not found!");
+        if (!book.isActive()) {
+            if (!quiet) {
+                System.out.println("This book has been withdrawn from circulation.");
+            }
+            return false;
+        }
+        if (member.hasBook(isbn)) {
+            if (!quiet) {
+                System.out.println("Book already borrowed by this member.");
+            }
+            return false;
+        }
+        LoanPolicy policy = policies.current(); // Read once: limit, loan period and fine agree
+        int rule = ruleFor(policy, member, book);
+        int limit = givenLimit >= 0 ? givenLimit : policy.maxBooks(rule);
+        if (limit == 0) {
+            if (!quiet) {
+                System.out.println("This item cannot be borrowed by " + member.getMemberType() + " members.");
+            }
+            return false;
+        }
+        limit = Math.min(limit, member.getMaxBooksAllowed());
+        if (!canBorrowUnder(member, limit)) {
+            if (!quiet) {
+                System.out.println("Member cannot borrow more books (inactive or limit reached).");
+            }
             return false;
         }
 
-        Book book = books.get(isbn);
-        Member member = members.get(memberId);
-        
-        if (book.getAvailableCopies() > 0) {
-            book.decreaseAvailableCopies();
-            member.borrowBook(book);
-            System.out.println("Book borrowed successfully!");
+        Hold hold = reservations.findHold(memberId, isbn);
+        if (hold != null) {
+            reservations.removeHold(hold);
+            book.releaseHeldCopy();
+            Transaction loan = issue(member, book, policy, rule, givenDue, givenId);
+            publish(CirculationEvent.BORROW, memberId, isbn, null, null, limit, loan.getDueDate().getTime(),
+                    loan.getTransactionId());
+            if (!quiet) {
+                System.out.println("Held copy collected from pickup shelf. Book borrowed successfully!");
+            }
+            return true;
+        }
+
+        if (book.isAvailable()) {
+            Transaction loan = issue(member, book, policy, rule, givenDue, givenId);
+            publish(CirculationEvent.BORROW, memberId, isbn, null, null, limit, loan.getDueDate().getTime(),
+                    loan.getTransactionId());
+            if (!quiet) {
+                System.out.println("Book borrowed successfully!");
+            }
             return true;
         } else {
-            book.addToQueue(memberId); // Add to waiting list
-            System.out.println("Book not available. Added to waiting queue.");
+            book.enqueue(memberId); // Add to waiting list
+            publish(CirculationEvent.BORROW, memberId, isbn, null, null, limit, 0, null);
+            if (!quiet) {
+                System.out.println("Book not available. Added to waiting queue.");
+            }
             return false;
         }
     }
 
     // Return a book
-    public boolean returnBook(String memberId, String isbn) {
-        // Add transaction to queue
-        transactionQueue.offer(new Transaction("RETURN", memberId, isbn));
-        
-        if (!members.containsKey(memberId)) {
-            System.out.println("Member not found!");
+    public synchronized boolean returnBook(String memberId, String isbn) {
+        Member member = lookupMember(memberId);
+        if (member == null) {
+            if (!quiet) {
+                System.out.println("Member not found!");
+            }
             return false;
         }
-        if (!books.containsKey(isbn)) {
-            System.out.println("Book not found!");
+        Book book = lookupBook(isbn);
+        if (book == null) {
+            if (!quiet) {
+                System.out.println("Book not found!");
+            }
             return false;
         }
 
-        Book book = books.get(isbn);
-        Member member = members.get(memberId);
-        
-        if (!member.hasBorrowed(isbn)) {
-            System.out.println("Member has not borrowed this book!");
+        if (!member.hasBook(isbn)) {
+            if (!quiet) {
+                System.out.println("Member has not borrowed this book!");
+            }
             return false;
         }
-        
+
+        checkIn(member, book, loans.findOpenLoan(memberId, isbn));
+        reindex(member);
+        if (!quiet) {
+            System.out.println("Book returned successfully!");
+        }
+        offerToWaiting(book, clock.getAsLong());
+        return true;
+    }
+
+    // Return one copy: book, member and loan store are updated together
+    private void checkIn(Member member, Book book, Transaction loan) {
         book.increaseAvailableCopies();
-        member.returnBook(isbn);
-        
-        // Check if anyone is waiting for this book
-        if (book.hasWaitingMembers()) {
-            String nextMemberId = book.getNextFromQueue();
-            Member nextMember = members.get(nextMemberId);
-            if (nextMember != null) {
-                book.decreaseAvailableCopies();
-                nextMember.borrowBook(book);
-                System.out.println("Book automatically assigned to " + nextMember.getName() + " from waiting queue!");
-            }
-        }
-        
-        System.out.println("Book returned successfully!");
+        book.removeBorrower(member.getMemberId());
+        member.returnBook(book.getIsbn());
+        if (loan != null) {
+            loan.markAsReturned(new Date(clock.getAsLong()));
+            loans.closeLoan(loan);
+        }
+        publish(CirculationEvent.RETURN, member.getMemberId(), book.getIsbn(), null, null, 0);
+    }
+
+    // Renew one loan: the due date restarts from today under the current policy.
+    // Refused while anyone else is waiting for the title.
+    public synchronized boolean renewLoan(String memberId, String isbn) {
+        Transaction loan = loans.findOpenLoan(memberId, isbn);
+        Book book = lookupBook(isbn);
+        Member member = lookupMember(memberId);
+        if (loan == null || book == null || member == null) {
+            if (!quiet) {
+                System.out.println("No open loan of " + isbn + " for member " + memberId + ".");
+            }
+            return false;
+        }
+        if (!renew(member, book, loan, 0)) {
+            if (!quiet) {
+                System.out.println("Cannot renew " + book.getTitle() + ": other members are waiting for it.");
+            }
+            return false;
+        }
+        if (!quiet) {
+            System.out.println("Renewed " + book.getTitle() + " until " + loan.getDueDate());
+        }
+        return true;
+    }
+
+    // Apply a renewal decided elsewhere (replica or replay) with the due date it was given
+    public synchronized boolean applyRenew(String memberId, String isbn, long dueAt) {
+        Transaction loan = loans.findOpenLoan(memberId, isbn);
+        Book book = lookupBook(isbn);
+        Member member = lookupMember(memberId);
+        return loan != null && book != null && member != null && renew(member, book, loan, dueAt);
+    }
+
+    private boolean renew(Member member, Book book, Transaction loan, long givenDue) {
+        if (book.hasWaitingList()) {
+            return false;
+        }
+        Date due;
+        if (givenDue > 0) {
+            due = new Date(givenDue);
+        } else {
+            LoanPolicy policy = policies.current();
+            due = dueDateFor(policy, ruleFor(policy, member, book));
+        }
+        if (due.after(loan.getDueDate())) {
+            loan.setDueDate(due);
+        }
+        publish(CirculationEvent.RENEW, member.getMemberId(), book.getIsbn(), null, null, 0,
+                loan.getDueDate().getTime(), null);
+        return true;
+    }
+
+    // Bulk operations: one lock acquisition for the whole request, lookups shared within it,
+    // one summary line instead of a line per item, and the resulting events delivered to the
+    // listeners as one batch (the circulation log writes them with a single flush).
+    private void beginBatch() {
+        if (!listeners.isEmpty()) {
+            pendingEvents = new ArrayList<>();
+        }
+    }
+
+    private void endBatch() {
+        List<CirculationEvent> events = pendingEvents;
+        pendingEvents = null;
+        if (events != null && !events.isEmpty()) {
+            for (LibraryListener listener : listeners) {
+                listener.onEvents(events);
+            }
+        }
+    }
+
+    // Renew every open loan of a member; returns how many were renewed
+    public synchronized int renewAll(String memberId) {
+        Member member = lookupMember(memberId);
+        if (member == null) {
+            if (!quiet) {
+                System.out.println("Member not found!");
+            }
+            return 0;
+        }
+        List<Transaction> open = loans.openLoansFor(memberId);
+        int renewed = 0;
+        beginBatch();
+        try {
+            for (Transaction loan : open) {
+                Book book = lookupBook(loan.getBookIsbn());
+                if (book != null && renew(member, book, loan, 0)) {
+                    renewed++;
+                }
+            }
+        } finally {
+            endBatch();
+        }
+        if (!quiet) {
+            System.out.println("Renewed " + renewed + " of " + open.size() + " loans for " + member.getName() +
+                    (renewed < open.size() ? " (titles with a waiting list were skipped)" : ""));
+        }
+        return renewed;
+    }
+
+    // Check in a whole drop bin by loan barcode (the Transaction ID printed on the slip).
+    // Items are grouped by title so each book is looked up once and its waiting list is
+    // served once, after all of its copies are back. Returns how many were checked in.
+    public synchronized int returnBatch(List<String> barcodes) {
+        LinkedHashMap<String, List<Transaction>> byTitle = new LinkedHashMap<>();
+        int unknown = 0;
+        for (String barcode : barcodes) {
+            Transaction loan = loans.findOpenLoanById(barcode);
+            if (loan == null) {
+                unknown++;
+                continue;
+            }
+            byTitle.computeIfAbsent(loan.getBookIsbn(), k -> new ArrayList<>()).add(loan);
+        }
+
+        HashMap<String, Member> members = new HashMap<>();
+        int returned = 0;
+        long now = clock.getAsLong();
+        beginBatch();
+        try {
+            for (Map.Entry<String, List<Transaction>> group : byTitle.entrySet()) {
+                Book book = lookupBook(group.getKey());
+                if (book == null) {
+                    unknown += group.getValue().size();
+                    continue;
+                }
+                for (Transaction loan : group.getValue()) {
+                    Member member = members.computeIfAbsent(loan.getMemberId(), this::lookupMember);
+                    if (member == null || !member.hasBook(book.getIsbn()) || loan.isReturned()) {
+                        unknown++; // Duplicate scan or a loan the member no longer has
+                        continue;
+                    }
+                    checkIn(member, book, loan);
+                    returned++;
+                }
+                offerToWaiting(book, now);
+            }
+        } finally {
+            endBatch();
+        }
+        for (Member member : members.values()) {
+            if (member != null) {
+                reindex(member);
+            }
+        }
+        if (!quiet) {
+            System.out.println("Checked in " + returned + " items from " + byTitle.size() + " titles" +
+                    (unknown > 0 ? "; " + unknown + " barcodes not matched to an open loan" : ""));
+        }
+        return returned;
+    }
+
+    // Apply a change to every book matching the filter (e.g. deactivate a withdrawn collection);
+    // returns how many books were changed. Title and author changes are re-indexed for search,
+    // and each changed book is published with its resulting title, author, copies, status and genre.
+    public synchronized int bulkUpdate(Predicate<Book> filter, Consumer<Book> change) {
+        List<Book> changed = new ArrayList<>();
+        beginBatch();
+        try {
+            for (Book book : catalog.allBooks()) {
+                if (filter.test(book)) {
+                    change.accept(book);
+                    changed.add(book);
+                    publish(CirculationEvent.BOOK_UPDATED, null, book.getIsbn(), book.getTitle(), book.getAuthor(),
+                            book.getTotalCopies(), book.isActive() ? 1 : 0, book.getGenre());
+                }
+            }
+        } finally {
+            endBatch();
+        }
+        if (searchIndex != null && !changed.isEmpty()) {
+            synchronized (searchIndex) {
+                for (Book book : changed) {
+                    searchIndex.update(book);
+                }
+            }
+        }
+        if (!quiet) {
+            System.out.println("Updated " + changed.size() + " books.");
+        }
+        return changed.size();
+    }
+
+    // Move available copies to the pickup shelf for the highest-priority waiting members
+    private void offerToWaiting(Book book, long now) {
+        LoanPolicy policy = policies.current();
+        while (book.isAvailable() && book.hasWaitingList()) {
+            Member next = nextByPriority(book, policy);
+            if (next == null) {
+                return;
+            }
+            book.holdCopy();
+            Hold hold = new Hold(next.getMemberId(), book.getIsbn(), now, now + HOLD_PICKUP_DAYS * DAY_MILLIS);
+            reservations.placeHold(hold);
+            publish(CirculationEvent.HOLD_PLACED, next.getMemberId(), book.getIsbn(), book.getTitle(), null, 0);
+            if (!quiet) {
+                System.out.println("Copy of " + book.getTitle() + " held for " + next.getName() +
+                        " until " + new Date(hold.getExpiresAt()));
+            }
+        }
+    }
+
+    private int ruleFor(LoanPolicy policy, Member member, Book book) {
+        return policy.ruleFor(member.getMemberType(), book.getGenre(), branch);
+    }
+
+    // The policy's limit is the member's total for this kind of item; the member is not modified
+    private static boolean canBorrowUnder(Member member, int limit) {
+        return member.isActive() && member.getBorrowedBooksCount() < limit;
+    }
+
+    // Policy limit for the rule, lowered by the member's individual limit if that is tighter
+    private static int loanLimit(LoanPolicy policy, int rule, Member member) {
+        return Math.min(policy.maxBooks(rule), member.getMaxBooksAllowed());
+    }
+
+    // Limit for general items, used by the "at limit" member index
+    private int generalLoanLimit(Member member) {
+        LoanPolicy policy = policies.current();
+        return loanLimit(policy, policy.ruleFor(member.getMemberType(), "*", branch), member);
+    }
+
+    // Copy of the member's open loans, taken under the library lock
+    public synchronized List<Transaction> openLoansFor(String memberId) {
+        return new ArrayList<>(loans.openLoansFor(memberId));
+    }
+
+    // Whether a loan barcode (transaction ID) belongs to a loan open in this library
+    public synchronized boolean hasOpenLoan(String barcode) {
+        return loans.findOpenLoanById(barcode) != null;
+    }
+
+    // Total loan limit this member has when borrowing this title (the policy's, or the member's own
+    // if lower); -1 if either is unknown
+    public synchronized int loanLimitFor(String memberId, String isbn) {
+        Member member = lookupMember(memberId);
+        Book book = lookupBook(isbn);
+        if (member == null || book == null) {
+            return -1;
+        }
+        LoanPolicy policy = policies.current();
+        return loanLimit(policy, ruleFor(policy, member, book), member);
+    }
+
+    // Lowest tier wins; FIFO within a tier. Members who cannot borrow right now keep their place.
+    private Member nextByPriority(Book book, LoanPolicy policy) {
+        Member best = null;
+        Iterator<String> queue = book.getBorrowersQueue().iterator();
+        while (queue.hasNext()) {
+            String memberId = queue.next();
+            Member candidate = catalog.findMember(memberId);
+            if (candidate == null || candidate.hasBook(book.getIsbn())
+                    || reservations.findHold(memberId, book.getIsbn()) != null) {
+                queue.remove(); // Stale entry
+                continue;
+            }
+            if (canBorrowUnder(candidate, loanLimit(policy, ruleFor(policy, candidate, book), candidate))
+                    && (best == null || candidate.getPriorityTier() < best.getPriorityTier())) {
+                best = candidate;
+                if (best.getPriorityTier() == Member.TIER_ACCESSIBILITY) {
+                    break; // Nobody can outrank this member
+                }
+            }
+        }
+        if (best != null) {
+            book.dequeue(best.getMemberId());
+        }
+        return best;
+    }
+
+    // Scheduler entry point: expire holds as of the library's own clock (the one tests and replay drive)
+    public synchronized void processExpiredHolds() {
+        processExpiredHolds(clock.getAsLong());
+    }
+
+    // Release expired holds and offer the copies onward
+    public synchronized void processExpiredHolds(long now) {
+        for (Hold hold : reservations.pollExpired(now)) {
+            releaseExpiredHold(hold, now);
+        }
+    }
+
+    // Expire one specific hold (used when replaying the event stream)
+    public synchronized boolean expireHold(String memberId, String isbn) {
+        Hold hold = reservations.findHold(memberId, isbn);
+        if (hold == null || !reservations.removeHold(hold)) {
+            return false;
+        }
+        releaseExpiredHold(hold, clock.getAsLong());
+        return true;
+    }
+
+    private void releaseExpiredHold(Hold hold, long now) {
+        Book book = lookupBook(hold.getIsbn());
+        if (book == null) {
+            return;
+        }
+        book.releaseHeldCopy();
+        publish(CirculationEvent.HOLD_EXPIRED, hold.getMemberId(), hold.getIsbn(), null, null, 0);
+        if (!quiet) {
+            System.out.println("Hold expired for member " + hold.getMemberId() + " on " + book.getTitle());
+        }
+        offerToWaiting(book, now);
+    }
+
+    // Issue one copy: book, member and loan store are updated together. Returns the due date.
+    private Transaction issue(Member member, Book book, LoanPolicy policy, int rule, long givenDue, String givenId) {
+        book.decreaseAvailableCopies();
+        book.addBorrower(member.getMemberId());
+        member.addBorrowedBook(book);
+        reindex(member);
+        Transaction loan = newLoan(member, book, policy, rule, givenDue, givenId);
+        loans.addLoan(loan);
+        return loan;
+    }
+
+    // The loan ID is the barcode returnBatch matches on, so a replayed borrow keeps the logged one
+    private Transaction newLoan(Member member, Book book, LoanPolicy policy, int rule, long givenDue, String givenId) {
+        Date now = new Date(clock.getAsLong());
+        Date due = givenDue > 0 ? new Date(givenDue) : dueDateFor(policy, rule);
+        Transaction loan = givenId != null ? new Transaction(givenId, member.getMemberId(), book.getIsbn(), now, due)
+                : new Transaction(member.getMemberId(), book.getIsbn(), now, due);
+        loan.setFinePerDay(policy.finePerDay(rule));
+        return loan;
+    }
+
+    // Today plus the policy's loan period for the rule
+    private Date dueDateFor(LoanPolicy policy, int rule) {
+        return new Date(clock.getAsLong() + policy.loanDays(rule) * DAY_MILLIS);
+    }
+
+    // Apply a repair proposed by the ConsistencyChecker. The issue is re-checked against live
+    // state first, so a repair that traffic has already made unnecessary is skipped.
+    // Where the two sides disagree, an open loan record decides which side is right.
+    public synchronized boolean repair(ConsistencyIssue issue) {
+        String isbn = issue.getIsbn();
+        String memberId = issue.getMemberId();
+        Book book = catalog.findBook(isbn);
+        Member member = memberId == null ? null : catalog.findMember(memberId);
+        boolean hasLoan = memberId != null && loans.findOpenLoan(memberId, isbn) != null;
+        if (book == null && member == null) {
+            return false;
+        }
+
+        switch (issue.getType()) {
+            case ConsistencyIssue.STALE_QUEUE_ENTRY:
+                if (book == null || (member != null && !member.hasBook(isbn)
+                        && reservations.findHold(memberId, isbn) == null)) {
+                    return false;
+                }
+                book.dequeue(memberId);
+                break;
+            case ConsistencyIssue.BORROWER_NOT_ON_MEMBER:
+                if (book == null || !book.isBorrowedBy(memberId) || (member != null && member.hasBook(isbn))) {
+                    return false;
+                }
+                if (member != null && hasLoan) {
+                    member.getBorrowedBooks().put(isbn, book);
+                    reindex(member);
+                } else {
+                    book.removeBorrower(memberId);
+                }
+                break;
+            case ConsistencyIssue.LOAN_NOT_ON_BOOK:
+                if (member == null || !member.hasBook(isbn) || (book != null && book.isBorrowedBy(memberId))) {
+                    return false;
+                }
+                if (book != null && hasLoan) {
+                    book.addBorrower(memberId);
+                } else {
+                    member.returnBook(isbn);
+                    reindex(member);
+                }
+                break;
+            case ConsistencyIssue.MISSING_LOAN_RECORD:
+                if (book == null || member == null || hasLoan
+                        || !member.hasBook(isbn) || !book.isBorrowedBy(memberId)) {
+                    return false;
+                }
+                LoanPolicy policy = policies.current();
+                loans.addLoan(newLoan(member, book, policy, ruleFor(policy, member, book), 0, null));
+                break;
+            case ConsistencyIssue.COPY_COUNT_MISMATCH:
+            case ConsistencyIssue.HOLD_COUNT_MISMATCH:
+                break; // Recounted below
+            default:
+                return false;
+        }
+        if (book != null) {
+            reconcileCopies(book);
+        }
+        publish(CirculationEvent.REPAIRED, memberId, isbn, issue.getType(), null, 0);
+        if (!quiet) {
+            System.out.println("Repaired " + issue.getType() + " for ISBN " + isbn +
+                    (memberId != null ? ", member " + memberId : ""));
+        }
         return true;
     }
 
+    // Recount held copies from the active holds and available copies from the borrower list
+    private void reconcileCopies(Book book) {
+        int held = 0;
+        for (Hold hold : reservations.getActiveHolds()) {
+            if (hold.getIsbn().equals(book.getIsbn())) {
+                held++;
+            }
+        }
+        int borrowed = book.getCurrentBorrowers().size();
+        held = Math.min(held, Math.max(0, book.getTotalCopies() - borrowed));
+        int available = book.getTotalCopies() - borrowed - held;
+        if (available < 0) {
+            if (!quiet) {
+                System.out.println("More borrowers than copies for " + book.getTitle() + "; check the stock count.");
+            }
+            available = 0;
+        }
+        if (available != book.getAvailableCopies() || held != book.getHeldCopies()) {
+            book.resetCopyCounts(available, held);
+        }
+    }
+
+    // Idempotent variants of every mutating call: a retried request returns the original result
+    // without re-applying it. The dedup key covers the operation and its arguments as well as the
+    // request ID, so a client that reuses an ID for a different request is not answered from the cache.
+    public synchronized boolean borrowBook(String requestId, String memberId, String isbn) {
+        return once(requestId, "BORROW|" + memberId + "|" + isbn, () -> borrowBook(memberId, isbn) ? 1 : 0) == 1;
+    }
+
+    public synchronized boolean returnBook(String requestId, String memberId, String isbn) {
+        return once(requestId, "RETURN|" + memberId + "|" + isbn, () -> returnBook(memberId, isbn) ? 1 : 0) == 1;
+    }
+
+    public synchronized boolean renewLoan(String requestId, String memberId, String isbn) {
+        return once(requestId, "RENEW|" + memberId + "|" + isbn, () -> renewLoan(memberId, isbn) ? 1 : 0) == 1;
+    }
+
+    public synchronized int renewAll(String requestId, String memberId) {
+        return once(requestId, "RENEW_ALL|" + memberId, () -> renewAll(memberId));
+    }
+
+    public synchronized int returnBatch(String requestId, List<String> barcodes) {
+        return once(requestId, "RETURN_BATCH|" + String.join("\t", barcodes), () -> returnBatch(barcodes));
+    }
+
+    public synchronized boolean addBook(String requestId, String isbn, String title, String author, int copies) {
+        return once(requestId, "ADD_BOOK|" + isbn, () -> addBook(isbn, title, author, copies) ? 1 : 0) == 1;
+    }
+
+    public synchronized boolean addMember(String requestId, String memberId, String name, String email) {
+        return once(requestId, "ADD_MEMBER|" + memberId, () -> addMember(memberId, name, email) ? 1 : 0) == 1;
+    }
+
+    public synchronized boolean updateMember(String requestId, String memberId, Consumer<Member> change) {
+        return once(requestId, "UPDATE_MEMBER|" + memberId, () -> updateMember(memberId, change) ? 1 : 0) == 1;
+    }
+
+    private int once(String requestId, String operation, IntSupplier action) {
+        String key = requestId + "|" + operation;
+        long now = clock.getAsLong();
+        Integer cached = requestLog.lookup(key, now);
+        if (cached != null) {
+            if (!quiet) {
+                System.out.println("Duplicate request " + requestId + ", returning original result.");
+            }
+            return cached;
+        }
+        int result = action.getAsInt();
+        requestLog.record(key, result, now);
+        return result;
+    }
+
     // Search book by ISBN (O(1) due to HashMap)
-    public Book searchBook(String isbn) {
-        return books.get(isbn);
+    public synchronized Book searchBook(String isbn) {
+        return lookupBook(isbn);
+    }
+
+    // Search member by ID
+    public synchronized Member searchMember(String memberId) {
+        return lookupMember(memberId);
+    }
+
+    // Apply a change to a member (email, name, status, limit) and keep the indexes in step
+    public synchronized boolean updateMember(String memberId, Consumer<Member> change) {
+        Member member = lookupMember(memberId);
+        if (member == null) {
+            if (!quiet) {
+                System.out.println("Member not found!");
+            }
+            return false;
+        }
+        change.accept(member);
+        reindex(member);
+        publish(CirculationEvent.MEMBER_UPDATED, memberId, null, member.getName(), member.getEmail(),
+                member.getMaxBooksAllowed(), (member.isActive() ? 1 : 0) | (long) member.getPriorityTier() << 1,
+                member.getMemberType() + "\t" + member.getPhoneNumber());
+        return true;
+    }
+
+    // Apply a member update published by another library (replica or replay)
+    public synchronized boolean applyMemberUpdate(String memberId, String name, String email, String typeAndPhone,
+                                                  int maxBooksAllowed, long flags) {
+        String[] extra = typeAndPhone == null ? new String[0] : typeAndPhone.split("\t", -1);
+        return updateMember(memberId, member -> {
+            member.setName(name);
+            member.setEmail(email);
+            member.setMaxBooksAllowed(maxBooksAllowed);
+            member.setActive((flags & 1) != 0);
+            member.setPriorityTier((int) (flags >>> 1));
+            if (extra.length == 2) {
+                member.setMemberType(extra[0]);
+                member.setPhoneNumber(extra[1]);
+            }
+        });
+    }
+
+    // Apply a book update published by another library (replica or replay). The copy count is
+    // set directly; a count below the copies on loan or on the pickup shelf means this library
+    // has drifted from the one that published it, so the update is refused as a whole.
+    public synchronized boolean applyBookUpdate(String isbn, String title, String author, int copies,
+                                                long active, String genre) {
+        Book book = lookupBook(isbn);
+        if (book == null) {
+            return false;
+        }
+        if (!book.setTotalCopies(copies)) {
+            if (!quiet) {
+                System.out.println("Cannot reduce " + book.getTitle() + " to " + copies + " copies: " +
+                        (book.getTotalCopies() - book.getAvailableCopies()) + " are on loan or on hold.");
+            }
+            return false;
+        }
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setActive(active != 0);
+        book.setGenre(genre);
+        if (searchIndex != null) {
+            synchronized (searchIndex) {
+                searchIndex.update(book);
+            }
+        }
+        return true;
+    }
+
+    // Every policy swapped in is published, with its text, so replicas and replays use the same rules
+    private synchronized void policyLoaded(LoanPolicy policy) {
+        memberIndex = null; // "At limit" depends on the policy; rebuilt on the next query
+        publish(CirculationEvent.POLICY_LOADED, null, null, null, policy.getSource(), policy.getRuleCount());
+    }
+
+    // Apply a policy published by another library (replica or replay)
+    public void applyPolicy(String source) {
+        policies.install(LoanPolicy.compile(Arrays.asList(source.split("\n", -1))));
+    }
+
+    private void reindex(Member member) {
+        if (memberIndex != null) {
+            memberIndex.update(member, generalLoanLimit(member));
+        }
+    }
+
+    // Built lazily so a memory-mapped catalog is not fully hydrated at startup
+    public synchronized MemberIndex getMemberIndex() {
+        if (memberIndex == null) {
+            memberIndex = new MemberIndex();
+            for (Member member : catalog.allMembers()) {
+                memberIndex.update(member, generalLoanLimit(member));
+            }
+        }
+        return memberIndex;
+    }
+
+    // Members with at least one open loan past due on the library clock. Computed per query
+    // from the open loans, so it is never stale and costs nothing on issue or return.
+    private BitSet overdueBitmap(MemberIndex index) {
+        long now = clock.getAsLong();
+        List<String> overdue = new ArrayList<>();
+        for (Transaction loan : loans.openLoans()) {
+            if (loan.getDueDate().getTime() < now) {
+                overdue.add(loan.getMemberId());
+            }
+        }
+        return index.bitmapOf(overdue);
     }
-    
+
+    // Search member by email (O(1) hash index); the earliest registered if the address is shared
+    public synchronized Member searchMemberByEmail(String email) {
+        List<Member> members = searchMembersByEmail(email);
+        return members.isEmpty() ? null : members.get(0);
+    }
+
+    // Every member registered with this email address
+    public synchronized List<Member> searchMembersByEmail(String email) {
+        return membersOf(getMemberIndex().findByEmail(email));
+    }
+
+    // Search members whose name starts with the prefix (case-insensitive)
+    public synchronized List<Member> searchMembersByName(String prefix) {
+        return membersOf(getMemberIndex().findByNamePrefix(prefix));
+    }
+
+    public synchronized List<Member> findInactiveMembers() {
+        MemberIndex index = getMemberIndex();
+        BitSet inactive = index.allBitmap();
+        inactive.andNot(index.activeBitmap());
+        return membersOf(index.memberIdsOf(inactive));
+    }
+
+    public synchronized List<Member> findMembersAtLimit() {
+        MemberIndex index = getMemberIndex();
+        return membersOf(index.memberIdsOf(index.atLimitBitmap()));
+    }
+
+    public synchronized List<Member> findActiveMembersWithOverdue() {
+        MemberIndex index = getMemberIndex();
+        BitSet result = index.activeBitmap();
+        result.and(overdueBitmap(index));
+        return membersOf(index.memberIdsOf(result));
+    }
+
+    private List<Member> membersOf(List<String> memberIds) {
+        List<Member> result = new ArrayList<>(memberIds.size());
+        for (String memberId : memberIds) {
+            Member member = catalog.findMember(memberId);
+            if (member != null) {
+                result.add(member);
+            }
+        }
+        return result;
+    }
+
+    // Typo-tolerant search. An ISBN-like query is tried as typed, then as its near misses
+    // (one digit wrong, missing, extra or swapped), which the Bloom filter rejects cheaply;
+    // anything else searches titles and authors. The title/author search runs under the
+    // index's own lock rather than the library's, so a slow query never holds up the desk.
+    public List<Book> fuzzySearch(String query) {
+        List<Book> result = new ArrayList<>();
+        String compact = query.replaceAll("[\\s-]", "");
+        if (compact.matches("[0-9]{8,13}[0-9Xx]?")) {
+            synchronized (this) {
+                Book exact = lookupBook(compact);
+                if (exact != null) {
+                    result.add(exact);
+                    return result;
+                }
+                for (String variant : BookSearchIndex.isbnVariants(compact)) {
+                    Book book = lookupBook(variant);
+                    if (book != null) {
+                        result.add(book);
+                    }
+                }
+                return result;
+            }
+        }
+        BookSearchIndex index;
+        synchronized (this) {
+            if (searchIndex == null) {
+                BookSearchIndex built = new BookSearchIndex();
+                for (Book book : catalog.allBooks()) {
+                    built.update(book);
+                }
+                searchIndex = built;
+            }
+            index = searchIndex;
+        }
+        List<String> isbns;
+        synchronized (index) {
+            isbns = index.search(query);
+        }
+        synchronized (this) {
+            for (String isbn : isbns) {
+                Book book = catalog.findBook(isbn);
+                if (book != null) {
+                    result.add(book);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Search books whose title contains the keyword (case-insensitive, linear scan)
+    public synchronized List<Book> searchByTitle(String keyword) {
+        List<Book> result = new ArrayList<>();
+        String needle = keyword.toLowerCase();
+        for (Book book : catalog.allBooks()) {
+            if (book.getTitle().toLowerCase().contains(needle)) {
+                result.add(book);
+            }
+        }
+        return result;
+    }
+
     // Display all books
-    public void displayAllBooks() {
+    public synchronized void displayAllBooks() {
         System.out.println("\n===== All Books =====");
-        if (books.isEmpty()) {
+        if (catalog.bookCount() == 0) {
             System.out.println("No books in the library.");
             return;
         }
-        
-        for (Book book : books.values()) {
-            System.out.println("ISBN: " + book.getIsbn() + 
-                             ", Title: " + book.getTitle() + 
-                             ", Author: " + book.getAuthor() + 
-                             ", Available: " + book.getAvailableCopies() + 
+
+        for (Book book : catalog.allBooks()) {
+            System.out.println("ISBN: " + book.getIsbn() +
+                             ", Title: " + book.getTitle() +
+                             ", Author: " + book.getAuthor() +
+                             ", Available: " + book.getAvailableCopies() +
                              "/" + book.getTotalCopies());
         }
     }
-    
+
     // Display all members
-    public void displayAllMembers() {
+    public synchronized void displayAllMembers() {
         System.out.println("\n===== All Members =====");
-        if (members.isEmpty()) {
+        if (catalog.memberCount() == 0) {
             System.out.println("No members registered.");
             return;
         }
-        
-        for (Member member : members.values()) {
-            System.out.println("ID: " + member.getMemberId() + 
-                             ", Name: " + member.getName() + 
-                             ", Email: " + member.getEmail() + 
-                             ", Borrowed Books: " + member.getBorrowedBooks().size());
+
+        for (Member member : catalog.allMembers()) {
+            System.out.println("ID: " + member.getMemberId() +
+                             ", Name: " + member.getName() +
+                             ", Email: " + member.getEmail() +
+                             ", Borrowed Books: " + member.getBorrowedBooksCount());
         }
     }
-    
+
+    // Display negative-lookup filter statistics
+    public void displayLookupFilterStats() {
+        System.out.println("\n===== Lookup Filters =====");
+        System.out.println("Books: " + bookFilter);
+        System.out.println("Members: " + memberFilter);
+    }
+
     // Display recent transactions
     public void displayRecentTransactions() {
         System.out.println("\n===== Recent Transactions =====");
-        if (transactionQueue.isEmpty()) {
+        if (loans.allLoans().isEmpty()) {
             System.out.println("No transactions recorded.");
             return;
         }
-        
-        for (Transaction transaction : transactionQueue) {
-            System.out.println("Type: " + transaction.getType() + 
-                             ", Member: " + transaction.getMemberId() + 
-                             ", ISBN: " + transaction.getIsbn() + 
-                             ", Time: " + transaction.getTimestamp());
+
+        for (Transaction transaction : loans.allLoans()) {
+            System.out.println(transaction);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,13 @@
+import java.util.List;
+
+// Callback for every state-changing operation applied to a Library
+public interface LibraryListener {
+    void onEvent(CirculationEvent event);
+
+    // Events of one bulk operation, in order; override to persist them as a single write
+    default void onEvents(List<CirculationEvent> events) {
+        for (CirculationEvent event : events) {
+            onEvent(event);
+        }
+    }
+}
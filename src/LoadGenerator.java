@@ -0,0 +1,377 @@
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Open-loop load generator for Library: realistic circulation traffic at a fixed target rate.
+//
+// Every operation has an intended start time from the rate schedule. Latency is measured from
+// that time rather than from when a worker got round to it, so a stall shows up in the numbers
+// for every request that queued behind it (no coordinated omission). Service time (actual start
+// to end) is recorded separately. Allocation is measured per call on the calling thread, and
+// GC pauses are collected from the JVM's GC notifications.
+//
+// The run is split into phases: steady traffic with Zipf title popularity, a semester-start
+// borrow burst, a return surge, and a hold storm on a new release with only a few copies.
+public class LoadGenerator {
+    private static final int BORROW = 0;
+    private static final int RETURN = 1;
+    private static final int SEARCH = 2;
+    private static final String[] OP_NAMES = { "borrow", "return", "search" };
+    private static final String NEW_RELEASE = "NEW-RELEASE-1";
+    private static final int NEW_RELEASE_COPIES = 5;
+    private static final long SPIN_NANOS = 50_000; // Park until this close to the start time, then spin
+
+    // One traffic phase: its share of the run, rate multiplier and operation mix (percent)
+    private static final class Phase {
+        final String name;
+        final double share;
+        final double rateFactor;
+        final int borrowPercent;
+        final int returnPercent;
+        final int newReleasePercent; // Of borrows, how many go to the new release
+
+        Phase(String name, double share, double rateFactor, int borrowPercent, int returnPercent, int newReleasePercent) {
+            this.name = name;
+            this.share = share;
+            this.rateFactor = rateFactor;
+            this.borrowPercent = borrowPercent;
+            this.returnPercent = returnPercent;
+            this.newReleasePercent = newReleasePercent;
+        }
+    }
+
+    private static final Phase[] PHASES = {
+            new Phase("steady", 0.4, 1.0, 45, 35, 0),
+            new Phase("semester_burst", 0.2, 3.0, 80, 10, 0),
+            new Phase("return_surge", 0.2, 2.0, 10, 80, 0),
+            new Phase("hold_storm", 0.2, 1.5, 60, 30, 70)
+    };
+
+    private int titles;
+    private int members;
+    private double zipfExponent;
+    private int targetRate;     // Operations per second in the steady phase
+    private long durationMillis;
+    private int threads;
+    private long seed;
+
+    public LoadGenerator() {
+        this.titles = 100000;
+        this.members = 20000;
+        this.zipfExponent = 1.0;
+        this.targetRate = 20000;
+        this.durationMillis = 30000;
+        this.threads = 4;
+        this.seed = 42;
+    }
+
+    public LoadGenerator withTitles(int titles) { this.titles = titles; return this; }
+    public LoadGenerator withMembers(int members) { this.members = members; return this; }
+    public LoadGenerator withZipfExponent(double exponent) { this.zipfExponent = exponent; return this; }
+    public LoadGenerator withRate(int opsPerSecond) { this.targetRate = opsPerSecond; return this; }
+    public LoadGenerator withDuration(long millis) { this.durationMillis = millis; return this; }
+    public LoadGenerator withThreads(int threads) { this.threads = threads; return this; }
+    public LoadGenerator withSeed(long seed) { this.seed = seed; return this; }
+
+    // Title popularity: rank r is drawn with probability proportional to 1 / r^s
+    private static final class ZipfSampler {
+        private final double[] cdf;
+
+        ZipfSampler(int n, double exponent) {
+            cdf = new double[n];
+            double total = 0;
+            for (int i = 0; i < n; i++) {
+                total += 1.0 / Math.pow(i + 1, exponent);
+                cdf[i] = total;
+            }
+            for (int i = 0; i < n; i++) {
+                cdf[i] /= total;
+            }
+        }
+
+        int sample(SplittableRandom random) {
+            int index = Arrays.binarySearch(cdf, random.nextDouble());
+            return Math.min(index < 0 ? -index - 1 : index, cdf.length - 1);
+        }
+    }
+
+    // Per-thread results, merged when the run ends
+    private static final class WorkerStats {
+        final LatencyHistogram[] latency = new LatencyHistogram[OP_NAMES.length]; // From intended start
+        final LatencyHistogram[] service = new LatencyHistogram[OP_NAMES.length]; // From actual start
+        final LatencyHistogram[] phaseLatency = new LatencyHistogram[PHASES.length];
+        final long[] allocated = new long[OP_NAMES.length];
+        final long[] succeeded = new long[OP_NAMES.length];
+
+        WorkerStats() {
+            for (int i = 0; i < OP_NAMES.length; i++) {
+                latency[i] = new LatencyHistogram();
+                service[i] = new LatencyHistogram();
+            }
+            for (int i = 0; i < PHASES.length; i++) {
+                phaseLatency[i] = new LatencyHistogram();
+            }
+        }
+    }
+
+    public LoadReport run() {
+        Library library = new Library();
+        library.setQuiet(true); // No per-operation console output: it would dominate time and allocation
+        SplittableRandom setupRandom = new SplittableRandom(seed);
+        String[] isbns = new String[titles];
+        for (int i = 0; i < titles; i++) {
+            isbns[i] = String.format(Locale.ROOT, "978%010d", i);
+            library.addBook(isbns[i], "Title " + i, "Author " + (i % 5000), 1 + setupRandom.nextInt(5));
+        }
+        library.addBook(NEW_RELEASE, "New Release", "Popular Author", NEW_RELEASE_COPIES);
+        String[] memberIds = new String[members];
+        for (int i = 0; i < members; i++) {
+            memberIds[i] = "LM" + i;
+            library.addMember(memberIds[i], "Member " + i, "member" + i + "@example.org");
+        }
+        ZipfSampler popularity = new ZipfSampler(titles, zipfExponent);
+        System.out.println("Load test: " + titles + " titles, " + members + " members, " + targetRate +
+                " ops/s base rate for " + durationMillis + " ms on " + threads + " threads");
+
+        // Operation schedule: phase p covers opStart[p] .. opStart[p+1] at its own rate
+        long[] opStart = new long[PHASES.length + 1];
+        long[] phaseStartNanos = new long[PHASES.length + 1];
+        double[] intervalNanos = new double[PHASES.length];
+        for (int p = 0; p < PHASES.length; p++) {
+            long phaseNanos = (long) (durationMillis * 1_000_000L * PHASES[p].share);
+            double rate = targetRate * PHASES[p].rateFactor;
+            intervalNanos[p] = 1e9 / rate;
+            opStart[p + 1] = opStart[p] + (long) (phaseNanos / intervalNanos[p]);
+            phaseStartNanos[p + 1] = phaseStartNanos[p] + phaseNanos;
+        }
+        long totalOps = opStart[PHASES.length];
+
+        ConcurrentLinkedQueue<String[]> outstanding = new ConcurrentLinkedQueue<>();       // memberId, isbn
+        ConcurrentLinkedQueue<String[]> outstandingRelease = new ConcurrentLinkedQueue<>();
+        AtomicLong nextOp = new AtomicLong();
+        GcPauseRecorder gc = new GcPauseRecorder();
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        System.gc();
+        gc.start();
+        long start = System.nanoTime() + 10_000_000L;
+        WorkerStats[] stats = new WorkerStats[threads];
+        Thread[] workers = new Thread[threads];
+        for (int w = 0; w < threads; w++) {
+            WorkerStats mine = new WorkerStats();
+            stats[w] = mine;
+            SplittableRandom random = new SplittableRandom(seed + 1 + w);
+            workers[w] = new Thread(() -> {
+                int phase = 0;
+                while (true) {
+                    long op = nextOp.getAndIncrement();
+                    if (op >= totalOps) {
+                        return;
+                    }
+                    while (op >= opStart[phase + 1]) {
+                        phase++;
+                    }
+                    Phase current = PHASES[phase];
+                    long intended = start + phaseStartNanos[phase] + (long) ((op - opStart[phase]) * intervalNanos[phase]);
+                    waitUntil(intended);
+
+                    // Choose the operation before timing it
+                    int roll = random.nextInt(100);
+                    int kind = roll < current.borrowPercent ? BORROW
+                            : roll < current.borrowPercent + current.returnPercent ? RETURN : SEARCH;
+                    String memberId = memberIds[random.nextInt(members)];
+                    String isbn = null;
+                    String[] loan = null;
+                    if (kind == RETURN) {
+                        if (current.newReleasePercent > 0 && random.nextInt(100) < current.newReleasePercent) {
+                            loan = outstandingRelease.poll();
+                        }
+                        if (loan == null) {
+                            loan = outstanding.poll();
+                        }
+                        if (loan == null) {
+                            kind = SEARCH;
+                        }
+                    }
+                    if (kind != RETURN) {
+                        boolean release = kind == BORROW && random.nextInt(100) < current.newReleasePercent;
+                        isbn = release ? NEW_RELEASE : isbns[popularity.sample(random)];
+                    }
+
+                    long allocatedBefore = threadBean.getCurrentThreadAllocatedBytes();
+                    long begin = System.nanoTime();
+                    boolean ok;
+                    if (kind == BORROW) {
+                        ok = library.borrowBook(memberId, isbn);
+                    } else if (kind == RETURN) {
+                        ok = library.returnBook(loan[0], loan[1]);
+                    } else {
+                        ok = library.searchBook(isbn) != null;
+                    }
+                    long end = System.nanoTime();
+                    mine.allocated[kind] += threadBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+                    mine.latency[kind].record(end - intended);
+                    mine.service[kind].record(end - begin);
+                    mine.phaseLatency[phase].record(end - intended);
+                    if (ok) {
+                        mine.succeeded[kind]++;
+                        if (kind == BORROW) {
+                            (NEW_RELEASE.equals(isbn) ? outstandingRelease : outstanding).add(new String[] { memberId, isbn });
+                        }
+                    }
+                }
+            }, "load-worker-" + w);
+            workers[w].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        gc.stop();
+
+        WorkerStats total = new WorkerStats();
+        for (WorkerStats worker : stats) {
+            for (int k = 0; k < OP_NAMES.length; k++) {
+                total.latency[k].merge(worker.latency[k]);
+                total.service[k].merge(worker.service[k]);
+                total.allocated[k] += worker.allocated[k];
+                total.succeeded[k] += worker.succeeded[k];
+            }
+            for (int p = 0; p < PHASES.length; p++) {
+                total.phaseLatency[p].merge(worker.phaseLatency[p]);
+            }
+        }
+        return buildReport(total, totalOps, elapsed, gc, library);
+    }
+
+    private LoadReport buildReport(WorkerStats total, long totalOps, long elapsedNanos, GcPauseRecorder gc, Library library) {
+        LoadReport report = new LoadReport();
+        report.put("run.titles", titles);
+        report.put("run.members", members);
+        report.put("run.zipf_exponent", zipfExponent);
+        report.put("run.target_rate", targetRate);
+        report.put("run.duration_ms", durationMillis);
+        report.put("run.threads", threads);
+        report.put("run.seed", seed);
+        report.put("run.ops", totalOps);
+        report.put("run.achieved_rate", totalOps * 1e9 / elapsedNanos);
+
+        LatencyHistogram all = new LatencyHistogram();
+        long allocated = 0;
+        for (int k = 0; k < OP_NAMES.length; k++) {
+            all.merge(total.latency[k]);
+            allocated += total.allocated[k];
+            report.putHistogram("latency." + OP_NAMES[k], total.latency[k]);
+            report.putHistogram("service." + OP_NAMES[k], total.service[k]);
+            report.put("ops." + OP_NAMES[k] + ".succeeded", total.succeeded[k]);
+            long count = total.latency[k].getCount();
+            report.put("alloc." + OP_NAMES[k] + ".bytes_per_op", count == 0 ? 0.0 : (double) total.allocated[k] / count);
+        }
+        report.putHistogram("latency.all", all);
+        report.put("alloc.all.bytes_per_op", all.getCount() == 0 ? 0.0 : (double) allocated / all.getCount());
+        for (int p = 0; p < PHASES.length; p++) {
+            report.putHistogram("phase." + PHASES[p].name, total.phaseLatency[p]);
+        }
+        report.put("gc.pauses", gc.getPauseCount());
+        report.put("gc.pause_total_ms", gc.getTotalPauseMillis());
+        report.put("gc.pause_max_ms", gc.getMaxPauseMillis());
+        report.put("state.active_holds", library.getReservations().getActiveHoldCount());
+        report.put("state.new_release_queue", library.searchBook(NEW_RELEASE).getQueueSize());
+        return report;
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    // Stop-the-world collections reported by the JVM while the run is in progress.
+    // Concurrent cycles are left out: they run beside the application rather than pausing it.
+    private static final class GcPauseRecorder implements NotificationListener {
+        private long count;
+        private long totalMillis;
+        private long maxMillis;
+
+        void start() {
+            for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (bean instanceof NotificationEmitter) {
+                    ((NotificationEmitter) bean).addNotificationListener(this, null, null);
+                }
+            }
+        }
+
+        void stop() {
+            for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (bean instanceof NotificationEmitter) {
+                    try {
+                        ((NotificationEmitter) bean).removeNotificationListener(this);
+                    } catch (javax.management.ListenerNotFoundException e) {
+                        // Never registered on this collector
+                    }
+                }
+            }
+        }
+
+        @Override
+        public synchronized void handleNotification(Notification notification, Object handback) {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            if (info.getGcAction().contains("concurrent") || info.getGcName().contains("Concurrent")) {
+                return;
+            }
+            long duration = info.getGcInfo().getDuration();
+            count++;
+            totalMillis += duration;
+            maxMillis = Math.max(maxMillis, duration);
+        }
+
+        synchronized long getPauseCount() { return count; }
+        synchronized long getTotalPauseMillis() { return totalMillis; }
+        synchronized long getMaxPauseMillis() { return maxMillis; }
+    }
+
+    // Usage: java LoadGenerator [opsPerSecond] [seconds] [reportFile] [baselineReport]
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator = new LoadGenerator();
+        if (args.length > 0) {
+            generator.withRate(Integer.parseInt(args[0]));
+        }
+        if (args.length > 1) {
+            generator.withDuration(Long.parseLong(args[1]) * 1000);
+        }
+        String reportFile = args.length > 2 ? args[2] : "data/load-report.txt";
+        LoadReport report = generator.run();
+        report.displaySummary();
+        report.write(reportFile);
+        if (args.length > 3) {
+            int regressions = report.compareTo(LoadReport.read(args[3]));
+            if (regressions > 0) {
+                System.exit(1);
+            }
+        }
+    }
+}
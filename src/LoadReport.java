@@ -0,0 +1,101 @@
+import java.io.*;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+// Results of one LoadGenerator run. Written as sorted "key=value" lines, so two runs can be
+// diffed by eye or compared with compareTo(), which flags latency and allocation regressions.
+public class LoadReport {
+    private static final double REGRESSION_THRESHOLD = 0.10; // 10% worse than the baseline
+
+    private final TreeMap<String, String> values; // Sorted, so reports diff line by line
+
+    public LoadReport() {
+        values = new TreeMap<>();
+    }
+
+    public void put(String key, long value) {
+        values.put(key, Long.toString(value));
+    }
+
+    public void put(String key, double value) {
+        values.put(key, String.format(Locale.ROOT, "%.3f", value));
+    }
+
+    public void put(String key, String value) {
+        values.put(key, value);
+    }
+
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    // Latency percentiles in microseconds, plus count and mean, under one prefix
+    public void putHistogram(String prefix, LatencyHistogram histogram) {
+        put(prefix + ".count", histogram.getCount());
+        put(prefix + ".mean_us", histogram.getMean() / 1000.0);
+        put(prefix + ".p50_us", histogram.percentile(50) / 1000.0);
+        put(prefix + ".p90_us", histogram.percentile(90) / 1000.0);
+        put(prefix + ".p99_us", histogram.percentile(99) / 1000.0);
+        put(prefix + ".p999_us", histogram.percentile(99.9) / 1000.0);
+        put(prefix + ".max_us", histogram.getMax() / 1000.0);
+    }
+
+    public void write(String path) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(path))) {
+            out.println("# Library load test report");
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                out.println(entry.getKey() + "=" + entry.getValue());
+            }
+        }
+        System.out.println("Load report written to " + path);
+    }
+
+    public static LoadReport read(String path) throws IOException {
+        Properties properties = new Properties();
+        try (FileReader in = new FileReader(path)) {
+            properties.load(in);
+        }
+        LoadReport report = new LoadReport();
+        for (String key : properties.stringPropertyNames()) {
+            report.values.put(key, properties.getProperty(key));
+        }
+        return report;
+    }
+
+    public void displaySummary() {
+        System.out.println("\n===== Load Test Summary =====");
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (!entry.getKey().contains(".p90") && !entry.getKey().contains(".mean")) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+            }
+        }
+    }
+
+    // Print every latency percentile, GC and allocation figure that got more than 10% worse; returns how many
+    public int compareTo(LoadReport baseline) {
+        int regressions = 0;
+        System.out.println("\n===== Comparison with Baseline =====");
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String key = entry.getKey();
+            boolean lowerIsBetter = key.endsWith("_us") || key.startsWith("gc.") || key.startsWith("alloc.");
+            if (key.endsWith(".max_us")) {
+                continue; // A single sample; too noisy to compare
+            }
+            String before = baseline.get(key);
+            if (!lowerIsBetter || before == null) {
+                continue;
+            }
+            double old = Double.parseDouble(before);
+            double now = Double.parseDouble(entry.getValue());
+            if (old > 0 && (now - old) / old > REGRESSION_THRESHOLD) {
+                System.out.println("REGRESSION " + key + ": " + before + " -> " + entry.getValue() +
+                        " (+" + String.format(Locale.ROOT, "%.1f", (now - old) / old * 100) + "%)");
+                regressions++;
+            }
+        }
+        System.out.println(regressions == 0 ? "No regressions." : regressions + " regressions.");
+        return regressions;
+    }
+}
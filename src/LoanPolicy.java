@@ -0,0 +1,159 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.*;
+
+// Compiled loan rules. The policy file lists rules as
+//
+//   memberType  itemType  branch  maxBooks  loanDays  finePerDay
+//
+// with "*" as a wildcard; '#' starts a comment. When several rules match, the one with the most
+// non-wildcard fields wins, and a later line beats an earlier one of equal specificity.
+// maxBooks is the member's total loan limit when borrowing that kind of item (0 = not loanable).
+//
+// Compilation resolves every (memberType, itemType, branch) combination up front into a flat
+// table, so a decision is three HashMap lookups and an array index.
+public class LoanPolicy {
+    private final HashMap<String, Integer> memberTypes; // Value 0 is reserved for "any other"
+    private final HashMap<String, Integer> itemTypes;
+    private final HashMap<String, Integer> branches;
+    private final int itemStride;
+    private final int branchStride;
+    private final int[] maxBooks;
+    private final int[] loanDays;
+    private final double[] finePerDay;
+    private final int ruleCount;
+    private final String source; // Policy text as compiled, so a reload can be logged and replayed
+
+    private LoanPolicy(HashMap<String, Integer> memberTypes, HashMap<String, Integer> itemTypes,
+                       HashMap<String, Integer> branches, int[] maxBooks, int[] loanDays,
+                       double[] finePerDay, int ruleCount, String source) {
+        this.memberTypes = memberTypes;
+        this.itemTypes = itemTypes;
+        this.branches = branches;
+        this.branchStride = branches.size() + 1;
+        this.itemStride = (itemTypes.size() + 1) * branchStride;
+        this.maxBooks = maxBooks;
+        this.loanDays = loanDays;
+        this.finePerDay = finePerDay;
+        this.ruleCount = ruleCount;
+        this.source = source;
+    }
+
+    // Built-in policy matching the original hard-coded rules (5 books, 14 days, ₹5/day)
+    public static LoanPolicy defaults() {
+        return compile(Collections.singletonList("* * * 5 14 5.0"));
+    }
+
+    public static LoanPolicy load(String path) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return compile(lines);
+    }
+
+    public static LoanPolicy compile(List<String> lines) {
+        List<String[]> rules = new ArrayList<>();
+        HashMap<String, Integer> memberTypes = new HashMap<>();
+        HashMap<String, Integer> itemTypes = new HashMap<>();
+        HashMap<String, Integer> branches = new HashMap<>();
+
+        int lineNumber = 0;
+        for (String raw : lines) {
+            lineNumber++;
+            int comment = raw.indexOf('#');
+            String line = (comment >= 0 ? raw.substring(0, comment) : raw).trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            if (fields.length != 6) {
+                throw new IllegalArgumentException("Policy line " + lineNumber + ": expected 6 fields, found " + fields.length);
+            }
+            try {
+                Integer.parseInt(fields[3]);
+                Integer.parseInt(fields[4]);
+                Double.parseDouble(fields[5]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Policy line " + lineNumber + ": " + e.getMessage());
+            }
+            intern(memberTypes, fields[0]);
+            intern(itemTypes, fields[1]);
+            intern(branches, fields[2]);
+            rules.add(fields);
+        }
+        if (rules.isEmpty()) {
+            throw new IllegalArgumentException("Policy has no rules");
+        }
+
+        int cells = (memberTypes.size() + 1) * (itemTypes.size() + 1) * (branches.size() + 1);
+        int[] maxBooks = new int[cells];
+        int[] loanDays = new int[cells];
+        double[] finePerDay = new double[cells];
+        int[] specificity = new int[cells];
+        Arrays.fill(specificity, -1);
+
+        LoanPolicy shape = new LoanPolicy(memberTypes, itemTypes, branches, maxBooks, loanDays, finePerDay,
+                rules.size(), String.join("\n", lines));
+        for (String[] rule : rules) {
+            int score = (rule[0].equals("*") ? 0 : 1) + (rule[1].equals("*") ? 0 : 1) + (rule[2].equals("*") ? 0 : 1);
+            for (int m : idsMatching(memberTypes, rule[0])) {
+                for (int i : idsMatching(itemTypes, rule[1])) {
+                    for (int b : idsMatching(branches, rule[2])) {
+                        int cell = shape.cell(m, i, b);
+                        if (score >= specificity[cell]) {
+                            specificity[cell] = score;
+                            maxBooks[cell] = Integer.parseInt(rule[3]);
+                            loanDays[cell] = Integer.parseInt(rule[4]);
+                            finePerDay[cell] = Double.parseDouble(rule[5]);
+                        }
+                    }
+                }
+            }
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            if (specificity[cell] < 0) {
+                throw new IllegalArgumentException("Policy does not cover every case; add a \"* * *\" rule");
+            }
+        }
+        return shape;
+    }
+
+    private static void intern(HashMap<String, Integer> ids, String value) {
+        if (!value.equals("*") && !ids.containsKey(value)) {
+            ids.put(value, ids.size() + 1);
+        }
+    }
+
+    private static int[] idsMatching(HashMap<String, Integer> ids, String value) {
+        if (!value.equals("*")) {
+            return new int[] { ids.get(value) };
+        }
+        int[] all = new int[ids.size() + 1];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+        return all;
+    }
+
+    private int cell(int memberType, int itemType, int branch) {
+        return memberType * itemStride + itemType * branchStride + branch;
+    }
+
+    // Decision for one borrow: returns a rule index for maxBooks/loanDays/finePerDay
+    public int ruleFor(String memberType, String itemType, String branch) {
+        return cell(memberTypes.getOrDefault(memberType, 0),
+                itemTypes.getOrDefault(itemType, 0),
+                branches.getOrDefault(branch, 0));
+    }
+
+    public int maxBooks(int rule) { return maxBooks[rule]; }
+    public int loanDays(int rule) { return loanDays[rule]; }
+    public double finePerDay(int rule) { return finePerDay[rule]; }
+    public int getRuleCount() { return ruleCount; }
+    public String getSource() { return source; }
+}
@@ -0,0 +1,15 @@
+import java.util.Collection;
+import java.util.List;
+
+// Storage backend for loan records (one Transaction per issued copy)
+public interface LoanStore {
+    void addLoan(Transaction loan);
+    Transaction findOpenLoan(String memberId, String isbn);
+    Transaction findOpenLoanById(String transactionId); // The transaction ID doubles as the loan barcode
+    void closeLoan(Transaction loan);
+    List<Transaction> openLoansFor(String memberId);
+    Collection<Transaction> openLoans(); // Loans not yet returned, without the returned history
+    Collection<Transaction> allLoans();
+    int loanCount();
+    List<Transaction> loanRange(int from, int to); // History is append-only, so earlier ranges stay put
+}
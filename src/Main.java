@@ -1,181 +1,68 @@
+import java.io.IOException;
 import java.util.*;
 
-// Book class
-class Book {
-    private String isbn;
-    private String title;
-    private String author;
-    private int totalCopies;
-    private int availableCopies;
-    
-    public Book(String isbn, String title, String author, int copies) {
-        this.isbn = isbn;
-        this.title = title;
-        this.author = author;
-        this.totalCopies = copies;
-        this.availableCopies = copies;
-    }
-    
-    // Getters
-    public String getIsbn() { return isbn; }
-    public String getTitle() { return title; }
-    public String getAuthor() { return author; }
-    public int getTotalCopies() { return totalCopies; }
-    public int getAvailableCopies() { return availableCopies; }
-    
-    // Methods for borrowing and returning
-    public boolean borrowCopy() {
-        if (availableCopies > 0) {
-            availableCopies--;
-            return true;
-        }
-        return false;
-    }
-    
-    public void returnCopy() {
-        if (availableCopies < totalCopies) {
-            availableCopies++;
-        }
-    }
-    
-    public boolean isAvailable() {
-        return availableCopies > 0;
-    }
-}
+// Main class
+public class Main {
+    private static final String BOOKS_FILE = "data/books.dat";
+    private static final String MEMBERS_FILE = "data/members.dat";
+    private static final String LOANS_FILE = "data/loans.dat";
+    private static final String OUTBOX_FILE = "data/outbox.log";
+    private static final String MAIL_FILE = "data/notifications.txt";
+    private static final String POLICY_FILE = "data/loan-policy.txt";
+    private static final String EVENT_LOG_FILE = "data/circulation.log";
+    private static final String CONSOLE_CLIENT = "console"; // Admission-control client ID for this desk
 
-// Member class
-class Member {
-    private String memberId;
-    private String name;
-    private String email;
-    private List<String> borrowedBooks;
-    
-    public Member(String memberId, String name, String email) {
-        this.memberId = memberId;
-        this.name = name;
-        this.email = email;
-        this.borrowedBooks = new ArrayList<>();
-    }
-    
-    // Getters
-    public String getMemberId() { return memberId; }
-    public String getName() { return name; }
-    public String getEmail() { return email; }
-    public List<String> getBorrowedBooks() { return borrowedBooks; }
-    
-    // Methods for borrowing and returning
-    public void borrowBook(String isbn) {
-        borrowedBooks.add(isbn);
-    }
-    
-    public boolean returnBook(String isbn) {
-        return borrowedBooks.remove(isbn);
-    }
-    
-    public boolean hasBorrowed(String isbn) {
-        return borrowedBooks.contains(isbn);
-    }
-}
+    public static void main(String[] args) throws IOException {
+        Scanner sc = new Scanner(System.in);
 
-// Library class
-class Library {
-    private Map<String, Book> books;
-    private Map<String, Member> members;
-    private Map<String, Queue<String>> waitingList; // ISBN -> Queue of member IDs
-    
-    public Library() {
-        books = new HashMap<>();
-        members = new HashMap<>();
-        waitingList = new HashMap<>();
-    }
-    
-    // Add a book to the library
-    public void addBook(String isbn, String title, String author, int copies) {
-        if (books.containsKey(isbn)) {
-            System.out.println("Book already exists! Use update functionality if needed.");
-        } else {
-            books.put(isbn, new Book(isbn, title, author, copies));
-            System.out.println("Book added successfully!");
-        }
-    }
-    
-    // Add a member to the library
-    public void addMember(String memberId, String name, String email) {
-        if (members.containsKey(memberId)) {
-            System.out.println("Member already exists!");
-        } else {
-            members.put(memberId, new Member(memberId, name, email));
-            System.out.println("Member added successfully!");
-        }
-    }
-    
-    // Search for a book by ISBN
-    public Book searchBook(String isbn) {
-        return books.get(isbn);
-    }
-    
-    // Borrow a book
-    public boolean borrowBook(String memberId, String isbn) {
-        Member member = members.get(memberId);
-        Book book = books.get(isbn);
-        
-        if (member == null) {
-            System.out.println("Member not found!");
-            return false;
-        }
-        
-        if (book == null) {
-            System.out.println("Book not found!");
-            return false;
+        // Storage backend is chosen at startup: "mapped" loads the snapshot files lazily
+        boolean mapped = args.length > 0 && args[0].equals("mapped");
+        MappedCatalogStore snapshot = mapped ? new MappedCatalogStore(BOOKS_FILE, MEMBERS_FILE) : null;
+        Library library = mapped ? new Library(snapshot, new InMemoryLoanStore()) : new Library();
+        if (mapped) {
+            snapshot.restoreCirculation(library, LOANS_FILE); // Open loans and holds at the watermark
         }
-        
-        if (book.borrowCopy()) {
-            member.borrowBook(isbn);
-            return true;
-        } else {
-            // Add to waiting list
-            waitingList.computeIfAbsent(isbn, k -> new LinkedList<>()).offer(memberId);
-            return false;
-        }
-    }
-    
-    // Return a book
-    public boolean returnBook(String memberId, String isbn) {
-        Member member = members.get(memberId);
-        Book book = books.get(isbn);
-        
-        if (member == null || book == null) {
-            return false;
-        }
-        
-        if (member.hasBorrowed(isbn)) {
-            member.returnBook(isbn);
-            book.returnCopy();
-            
-            // Check waiting list
-            Queue<String> waitingMembers = waitingList.get(isbn);
-            if (waitingMembers != null && !waitingMembers.isEmpty()) {
-                String nextMemberId = waitingMembers.poll();
-                Member nextMember = members.get(nextMemberId);
-                if (nextMember != null) {
-                    book.borrowCopy();
-                    nextMember.borrowBook(isbn);
-                    System.out.println("Book automatically assigned to " + nextMember.getName() + " from waiting list!");
+        // Restart from the circulation log: replay whatever the starting state does not include
+        // (all of it for the in-memory catalog, the tail after the snapshot's watermark when
+        // mapped), and continue its numbering. Replay runs before any listener is attached.
+        // The log is read once: the scan that opens it (and cuts off a record torn by a crash)
+        // also drives the replay and collects the returns for the recommendations.
+        long watermark = mapped ? snapshot.getSnapshotSequence() : 0;
+        ReplayEngine.Catchup catchup = new ReplayEngine.Catchup(library, watermark);
+        List<CirculationEvent> returns = new ArrayList<>();
+        EventLog eventLog;
+        try {
+            eventLog = new EventLog(EVENT_LOG_FILE, event -> {
+                catchup.accept(event);
+                if (CirculationEvent.RETURN.equals(event.getType())) {
+                    returns.add(event);
                 }
-            }
-            
-            return true;
+            });
+        } finally {
+            catchup.finish();
         }
-        
-        return false;
-    }
-}
+        library.setEventSequence(Math.max(watermark, eventLog.getLastSequence()));
 
-// Main class
-public class Main {
-    public static void main(String[] args) {
-        Scanner sc = new Scanner(System.in);
-        Library library = new Library();
+        // "Also borrowed" recommendations: seeded from past returns, then kept current by events
+        CoBorrowRecommender recommendations = new CoBorrowRecommender(5);
+        if (!returns.isEmpty()) {
+            recommendations.rebuild(returns);
+        }
+        library.addListener(recommendations);
+        library.addListener(eventLog); // Audit trail, replayable with ReplayEngine
+        library.getReservations().start(library, 60 * 1000L); // Pickup-shelf expiry, once a minute
+        if (new java.io.File(POLICY_FILE).exists() && library.getPolicies().reload(POLICY_FILE)) {
+            library.getPolicies().watch(POLICY_FILE, 5 * 1000L); // Hot reload on edit
+        }
+        NotificationService notifications = new NotificationService(library, new NotificationOutbox(OUTBOX_FILE),
+                new FileNotificationChannel(MAIL_FILE), 4, 60 * 1000L);
+        notifications.start(1000L);
+        // Drift between the book, member and loan records: changed records are checked and
+        // repaired every few minutes, the whole catalog on demand from the menu
+        ConsistencyChecker checker = new ConsistencyChecker(library);
+        checker.start(5 * 60 * 1000L);
+        // Desk operations pass the same rate limits and priority lanes as any other client
+        AdmissionController admission = new AdmissionController(library);
         
         while (true) {
             System.out.println("\n===== Library Management System =====");
@@ -184,7 +71,8 @@ public class Main {
             System.out.println("3. Borrow Book");
             System.out.println("4. Return Book");
             System.out.println("5. Search Book");
-            System.out.println("6. Exit");
+            System.out.println("6. Check Consistency");
+            System.out.println("7. Exit");
             System.out.print("Enter choice: ");
             
             int choice = sc.nextInt();
@@ -218,11 +106,7 @@ public class Main {
                     memberId = sc.nextLine();
                     System.out.print("Enter ISBN: ");
                     isbn = sc.nextLine();
-                    if (library.borrowBook(memberId, isbn)) {
-                        System.out.println("Book borrowed successfully!");
-                    } else {
-                        System.out.println("Book not available. Added to waiting list.");
-                    }
+                    admission.borrowBook(CONSOLE_CLIENT, memberId, isbn);
                     break;
 
                 case 4:
@@ -230,28 +114,61 @@ public class Main {
                     memberId = sc.nextLine();
                     System.out.print("Enter ISBN: ");
                     isbn = sc.nextLine();
-                    if (library.returnBook(memberId, isbn)) {
-                        System.out.println("Book returned successfully!");
-                    } else {
-                        System.out.println("Invalid member or book.");
-                    }
+                    admission.returnBook(CONSOLE_CLIENT, memberId, isbn);
                     break;
 
                 case 5:
-                    System.out.print("Enter ISBN: ");
+                    System.out.print("Enter ISBN or title: ");
                     isbn = sc.nextLine();
                     Book book = library.searchBook(isbn);
                     if (book != null) {
-                        System.out.println("Book found: " + book.getTitle() + 
+                        System.out.println("Book found: " + book.getTitle() +
                                          " by " + book.getAuthor() +
-                                         " (" + book.getAvailableCopies() + 
+                                         " (" + book.getAvailableCopies() +
                                          "/" + book.getTotalCopies() + " available)");
+                        List<String> similar = recommendations.similarTitles(book.getIsbn());
+                        if (!similar.isEmpty()) {
+                            System.out.println("Members who borrowed this also borrowed:");
+                            for (String similarIsbn : similar) {
+                                Book other = library.searchBook(similarIsbn);
+                                if (other != null) {
+                                    System.out.println("- " + other.getTitle() + " by " + other.getAuthor());
+                                }
+                            }
+                        }
                     } else {
-                        System.out.println("Book not found!");
+                        List<Book> suggestions = admission.searchBooks(CONSOLE_CLIENT, isbn);
+                        if (suggestions.isEmpty()) {
+                            System.out.println("Book not found!");
+                        } else {
+                            System.out.println("No exact match. Did you mean:");
+                            for (Book suggestion : suggestions) {
+                                System.out.println("- " + suggestion.getTitle() + " by " + suggestion.getAuthor() +
+                                        " (ISBN: " + suggestion.getIsbn() + ")");
+                            }
+                        }
                     }
                     break;
 
                 case 6:
+                    List<ConsistencyIssue> issues = checker.check();
+                    if (issues.isEmpty()) {
+                        System.out.println("No issues found.");
+                        break;
+                    }
+                    for (ConsistencyIssue issue : issues) {
+                        System.out.println("- " + issue);
+                    }
+                    System.out.print("Apply the repairs? (y/n): ");
+                    if (sc.nextLine().trim().equalsIgnoreCase("y")) {
+                        System.out.println(checker.repair(issues) + " issue(s) repaired.");
+                    }
+                    break;
+
+                case 7:
+                    if (mapped) {
+                        MappedCatalogStore.save(library, BOOKS_FILE, MEMBERS_FILE, LOANS_FILE);
+                    }
                     System.out.println("Exiting system...");
                     sc.close();
                     System.exit(0);
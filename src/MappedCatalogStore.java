@@ -0,0 +1,307 @@
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Memory-mapped backend: books and members stay in the snapshot files until first access,
+// then live on the heap like the in-memory store. Startup cost does not depend on catalog size.
+// Rows carry circulation state as well (copy counts, borrowers, waiting queue, member status and
+// borrowed titles); open loans and pickup holds go in a third file that is read at startup.
+// List fields are tab-separated.
+public class MappedCatalogStore implements CatalogStore {
+    private static final String LIST_SEPARATOR = "\t";
+    private static final String LOAN = "LOAN";
+    private static final String HOLD = "HOLD";
+
+    private HashMap<String, Book> books;     // Hydrated or newly added books
+    private HashMap<String, Member> members; // Hydrated or newly added members
+    private MappedSnapshot bookSnapshot;     // null once fully hydrated (or no file)
+    private MappedSnapshot memberSnapshot;
+    private int booksHydrated;
+    private int membersHydrated;
+    private final long snapshotSequence;     // Last event included in the files (0 if none)
+    private final BloomFilter bookFilter;    // Saved with the snapshot, or null
+    private final BloomFilter memberFilter;
+
+    public MappedCatalogStore(String booksPath, String membersPath) throws IOException {
+        books = new HashMap<>();
+        members = new HashMap<>();
+        bookSnapshot = MappedSnapshot.open(booksPath);
+        memberSnapshot = MappedSnapshot.open(membersPath);
+        long bookSequence = bookSnapshot == null ? 0 : bookSnapshot.getSequence();
+        long memberSequence = memberSnapshot == null ? 0 : memberSnapshot.getSequence();
+        if (bookSnapshot != null && memberSnapshot != null && bookSequence != memberSequence) {
+            throw new IOException("Book and member snapshots were written at different points " +
+                    "(events " + bookSequence + " and " + memberSequence + ")");
+        }
+        snapshotSequence = Math.max(bookSequence, memberSequence);
+        bookFilter = bookSnapshot == null ? null : BloomFilter.load(filterPath(booksPath), snapshotSequence);
+        memberFilter = memberSnapshot == null ? null : BloomFilter.load(filterPath(membersPath), snapshotSequence);
+    }
+
+    private static String filterPath(String snapshotPath) {
+        return snapshotPath + ".filter";
+    }
+
+    @Override
+    public BloomFilter savedBookFilter() { return bookFilter; }
+
+    @Override
+    public BloomFilter savedMemberFilter() { return memberFilter; }
+
+    // Replay the circulation log from the event after this one
+    public long getSnapshotSequence() {
+        return snapshotSequence;
+    }
+
+    // Write the library's state out in snapshot format, stamped with the event sequence it
+    // includes. Runs under the library lock so no event lands between the rows and the stamp.
+    // Returned loans are not kept; their history stays in the circulation log.
+    public static void save(Library library, String booksPath, String membersPath, String loansPath)
+            throws IOException {
+        synchronized (library) {
+            long sequence = library.getEventSequence();
+            CatalogStore store = library.getCatalog();
+            List<String[]> bookRows = new ArrayList<>();
+            for (Book book : store.allBooks()) {
+                bookRows.add(new String[] { book.getIsbn(), book.getTitle(), book.getAuthor(),
+                        String.valueOf(book.getTotalCopies()), book.getGenre(), book.getPublisher(),
+                        String.valueOf(book.getPublicationYear()), String.valueOf(book.getAvailableCopies()),
+                        String.valueOf(book.getHeldCopies()), String.valueOf(book.isActive()),
+                        String.join(LIST_SEPARATOR, book.getCurrentBorrowers()),
+                        String.join(LIST_SEPARATOR, book.getBorrowersQueue()) });
+            }
+            List<String[]> memberRows = new ArrayList<>();
+            for (Member member : store.allMembers()) {
+                memberRows.add(new String[] { member.getMemberId(), member.getName(), member.getEmail(),
+                        member.getPhoneNumber(), String.valueOf(member.getMaxBooksAllowed()),
+                        String.valueOf(member.isActive()), String.valueOf(member.getPriorityTier()),
+                        member.getMemberType(), String.join(LIST_SEPARATOR, member.getBorrowedBooks().keySet()) });
+            }
+            List<String[]> loanRows = new ArrayList<>();
+            for (Transaction loan : library.getLoans().allLoans()) {
+                if (!loan.isReturned()) {
+                    loanRows.add(new String[] { loan.getTransactionId(), LOAN, loan.getMemberId(),
+                            loan.getBookIsbn(), String.valueOf(loan.getIssueDate().getTime()),
+                            String.valueOf(loan.getDueDate().getTime()), String.valueOf(loan.getFinePerDay()) });
+                }
+            }
+            for (Hold hold : library.getReservations().getActiveHolds()) {
+                loanRows.add(new String[] { HOLD + "|" + hold.getMemberId() + "|" + hold.getIsbn(), HOLD,
+                        hold.getMemberId(), hold.getIsbn(), String.valueOf(hold.getPlacedAt()),
+                        String.valueOf(hold.getExpiresAt()), "" });
+            }
+            MappedSnapshot.write(booksPath, bookRows, sequence);
+            MappedSnapshot.write(membersPath, memberRows, sequence);
+            MappedSnapshot.write(loansPath, loanRows, sequence);
+            library.getBookFilter().save(filterPath(booksPath), sequence);
+            library.getMemberFilter().save(filterPath(membersPath), sequence);
+        }
+    }
+
+    // Load the open loans and pickup holds saved with this catalog into a new library,
+    // before the log tail is replayed over it
+    public void restoreCirculation(Library library, String loansPath) throws IOException {
+        MappedSnapshot loanSnapshot = MappedSnapshot.open(loansPath);
+        long loanSequence = loanSnapshot == null ? 0 : loanSnapshot.getSequence();
+        if (loanSequence != snapshotSequence) {
+            throw new IOException("Loan snapshot was written at event " + loanSequence +
+                    " but the catalog at event " + snapshotSequence);
+        }
+        if (loanSnapshot == null) {
+            return;
+        }
+        loanSnapshot.forEach(row -> {
+            if (LOAN.equals(row[1])) {
+                Transaction loan = new Transaction(row[0], row[2], row[3], new Date(Long.parseLong(row[4])),
+                        new Date(Long.parseLong(row[5])));
+                loan.setFinePerDay(Double.parseDouble(row[6]));
+                library.getLoans().addLoan(loan);
+            } else {
+                library.getReservations().placeHold(new Hold(row[2], row[3], Long.parseLong(row[4]),
+                        Long.parseLong(row[5])));
+            }
+        });
+    }
+
+    private static List<String> splitList(String field) {
+        return field.isEmpty() ? Collections.emptyList() : Arrays.asList(field.split(LIST_SEPARATOR, -1));
+    }
+
+    @Override
+    public Book findBook(String isbn) {
+        Book book = books.get(isbn);
+        if (book == null && bookSnapshot != null) {
+            String[] row = bookSnapshot.read(isbn);
+            if (row != null) {
+                book = decodeBook(row);
+                books.put(isbn, book);
+                booksHydrated++;
+            }
+        }
+        return book;
+    }
+
+    private static Book decodeBook(String[] row) {
+        Book book = new Book(row[0], row[1], row[2], Integer.parseInt(row[3]),
+                row[4], row[5], Integer.parseInt(row[6]));
+        book.resetCopyCounts(Integer.parseInt(row[7]), Integer.parseInt(row[8]));
+        book.setActive(Boolean.parseBoolean(row[9]));
+        for (String memberId : splitList(row[10])) {
+            book.addBorrower(memberId);
+        }
+        for (String memberId : splitList(row[11])) {
+            book.enqueue(memberId);
+        }
+        return book;
+    }
+
+    // Books on the heap, loaded from the file or added since
+    int loadedBookCount() { return books.size(); }
+
+    @Override
+    public void addBook(Book book) { books.put(book.getIsbn(), book); }
+
+    @Override
+    public Collection<Book> allBooks() {
+        if (bookSnapshot != null) {
+            bookSnapshot.forEach(row -> findBook(row[0]));
+            bookSnapshot = null;
+        }
+        return books.values();
+    }
+
+    @Override
+    public int bookCount() {
+        int pending = bookSnapshot == null ? 0 : bookSnapshot.getRecordCount() - booksHydrated;
+        return books.size() + pending;
+    }
+
+    @Override
+    public void forEachIsbn(Consumer<String> visitor) {
+        forEachKey(books, bookSnapshot, visitor);
+    }
+
+    @Override
+    public Member findMember(String memberId) {
+        Member member = members.get(memberId);
+        if (member == null && memberSnapshot != null) {
+            String[] row = memberSnapshot.read(memberId);
+            if (row != null) {
+                member = decodeMember(row);
+                members.put(memberId, member);
+                for (String borrowed : splitList(row[8])) {
+                    member.getBorrowedBooks().put(borrowed, findBook(borrowed));
+                }
+                membersHydrated++;
+            }
+        }
+        return member;
+    }
+
+    // Without the borrowed books, which are filled in by the caller
+    private static Member decodeMember(String[] row) {
+        Member member = new Member(row[0], row[1], row[2], row[3], Integer.parseInt(row[4]));
+        member.setActive(Boolean.parseBoolean(row[5]));
+        member.setPriorityTier(Integer.parseInt(row[6]));
+        member.setMemberType(row[7]);
+        return member;
+    }
+
+    @Override
+    public void addMember(Member member) { members.put(member.getMemberId(), member); }
+
+    @Override
+    public Collection<Member> allMembers() {
+        if (memberSnapshot != null) {
+            memberSnapshot.forEach(row -> findMember(row[0]));
+            memberSnapshot = null;
+        }
+        return members.values();
+    }
+
+    @Override
+    public int memberCount() {
+        int pending = memberSnapshot == null ? 0 : memberSnapshot.getRecordCount() - membersHydrated;
+        return members.size() + pending;
+    }
+
+    @Override
+    public void forEachMemberId(Consumer<String> visitor) {
+        forEachKey(members, memberSnapshot, visitor);
+    }
+
+    // File records first, each as the loaded object if there is one and as a throwaway copy if not,
+    // then the entries that are not in the file. Nothing is loaded.
+    @Override
+    public Scan<Book> scanBooks() {
+        return scanOf(books, bookSnapshot, MappedCatalogStore::decodeBook, Book::getIsbn);
+    }
+
+    // A throwaway member's borrowed map points only at books that are already loaded
+    @Override
+    public Scan<Member> scanMembers() {
+        return scanOf(members, memberSnapshot, row -> {
+            Member member = decodeMember(row);
+            for (String borrowed : splitList(row[8])) {
+                member.getBorrowedBooks().put(borrowed, books.get(borrowed));
+            }
+            return member;
+        }, Member::getMemberId);
+    }
+
+    private static <T> Scan<T> scanOf(HashMap<String, T> loaded, MappedSnapshot file,
+                                      Function<String[], T> decode, Function<T, String> key) {
+        return file == null ? CatalogStore.scanOf(loaded.values()) : new FileScan<>(loaded, file, decode, key);
+    }
+
+    private static final class FileScan<T> implements Scan<T> {
+        private final HashMap<String, T> loaded;
+        private final MappedSnapshot file;
+        private final Function<String[], T> decode;
+        private final Function<T, String> key;
+        private int position;  // In the file; -1 once every record has been visited
+        private Scan<T> added; // Entries that are not in the file, taken when the file is done
+
+        FileScan(HashMap<String, T> loaded, MappedSnapshot file, Function<String[], T> decode,
+                 Function<T, String> key) {
+            this.loaded = loaded;
+            this.file = file;
+            this.decode = decode;
+            this.key = key;
+        }
+
+        @Override
+        public boolean next(int limit, Consumer<T> visitor) {
+            if (position != -1) {
+                position = file.forEach(position, limit, row -> {
+                    T entry = loaded.get(row[0]);
+                    visitor.accept(entry != null ? entry : decode.apply(row));
+                });
+                return true;
+            }
+            if (added == null) {
+                List<T> entries = new ArrayList<>();
+                for (T entry : loaded.values()) {
+                    if (!file.contains(key.apply(entry))) {
+                        entries.add(entry);
+                    }
+                }
+                added = CatalogStore.scanOf(entries);
+            }
+            return added.next(limit, visitor);
+        }
+    }
+
+    // Hydrated keys first, then snapshot keys that have not been hydrated yet
+    private static void forEachKey(HashMap<String, ?> hydrated, MappedSnapshot snapshot, Consumer<String> visitor) {
+        hydrated.keySet().forEach(visitor);
+        if (snapshot != null) {
+            snapshot.forEachKey(key -> {
+                if (!hydrated.containsKey(key)) {
+                    visitor.accept(key);
+                }
+            });
+        }
+    }
+}
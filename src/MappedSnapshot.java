@@ -0,0 +1,185 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Read-only, memory-mapped snapshot of string records keyed by their first field.
+// Opening only maps the file and reads the header; a lookup hashes the key into an on-disk
+// open-addressed slot table and decodes a single record, so cost does not grow with file size.
+//
+// The header also records the last circulation event the snapshot includes (its watermark),
+// so a restart replays only the log records written after it.
+//
+// Layout: [magic][recordCount][slotCount][sequence][slot offsets ...][records ...]
+// Record: [fieldCount] then per field [length][UTF-8 bytes]
+public class MappedSnapshot {
+    private static final int MAGIC = 0x4C4D5333;        // "LMS3"
+    private static final int FIRST_FORMAT = 0x4C4D5331; // "LMS1": no watermark
+    private static final int HEADER_BYTES = 20;
+
+    private final MappedByteBuffer buffer;
+    private final int recordCount;
+    private final int slotCount;
+    private final long sequence;
+
+    private MappedSnapshot(MappedByteBuffer buffer, String path) throws IOException {
+        this.buffer = buffer;
+        int magic = buffer.getInt(0);
+        if (magic == FIRST_FORMAT) {
+            throw new IOException("Snapshot " + path + " has no event watermark, so the circulation log " +
+                    "cannot be replayed on top of it; move it aside and rebuild it from the log");
+        }
+        if (magic != MAGIC) {
+            throw new IOException("Not a library snapshot file: " + path);
+        }
+        this.recordCount = buffer.getInt(4);
+        this.slotCount = buffer.getInt(8);
+        this.sequence = buffer.getLong(12);
+    }
+
+    // Map a snapshot file; returns null if the file is missing or empty
+    public static MappedSnapshot open(String path) throws IOException {
+        File file = new File(path);
+        if (!file.exists() || file.length() == 0) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new MappedSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), path);
+        }
+    }
+
+    // Write rows (row[0] is the key) into a new snapshot file that includes events up to sequence
+    public static void write(String path, List<String[]> rows, long sequence) throws IOException {
+        int slotCount = Integer.highestOneBit(Math.max(rows.size() * 2, 2) - 1) << 1;
+        int[] slots = new int[slotCount]; // 0 means empty; records never start at offset 0
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream recordOut = new DataOutputStream(records);
+        int recordBase = HEADER_BYTES + slotCount * 4;
+
+        for (String[] row : rows) {
+            int slot = slotFor(row[0], slotCount);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (slotCount - 1);
+            }
+            slots[slot] = recordBase + recordOut.size();
+            recordOut.writeInt(row.length);
+            for (String field : row) {
+                byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+                recordOut.writeInt(bytes.length);
+                recordOut.write(bytes);
+            }
+        }
+
+        // Written beside the target and renamed over it, so a crash never leaves a torn snapshot
+        File temp = new File(path + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(rows.size());
+            out.writeInt(slotCount);
+            out.writeLong(sequence);
+            for (int offset : slots) {
+                out.writeInt(offset);
+            }
+            records.writeTo(out);
+        }
+        Files.move(temp.toPath(), new File(path).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int slotFor(String key, int slotCount) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (slotCount - 1);
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    // Sequence of the last circulation event reflected in this snapshot
+    public long getSequence() {
+        return sequence;
+    }
+
+    // Look up one record by key (null if absent)
+    public String[] read(String key) {
+        int slot = slotFor(key, slotCount);
+        for (int probes = 0; probes < slotCount; probes++) {
+            int offset = buffer.getInt(HEADER_BYTES + slot * 4);
+            if (offset == 0) {
+                return null;
+            }
+            String[] row = decode(offset);
+            if (row[0].equals(key)) {
+                return row;
+            }
+            slot = (slot + 1) & (slotCount - 1);
+        }
+        return null;
+    }
+
+    public boolean contains(String key) {
+        return read(key) != null;
+    }
+
+    // Visit every record in file order
+    public void forEach(Consumer<String[]> visitor) {
+        int offset = HEADER_BYTES + slotCount * 4;
+        for (int i = 0; i < recordCount; i++) {
+            String[] row = decode(offset);
+            visitor.accept(row);
+            offset += encodedLength(offset);
+        }
+    }
+
+    // Visit up to limit records in file order, starting at position (0 for the first record).
+    // Returns the position to continue from, or -1 once the last record has been visited.
+    public int forEach(int position, int limit, Consumer<String[]> visitor) {
+        int offset = position == 0 ? HEADER_BYTES + slotCount * 4 : position;
+        int end = buffer.limit();
+        for (int i = 0; i < limit && offset < end; i++) {
+            visitor.accept(decode(offset));
+            offset += encodedLength(offset);
+        }
+        return offset < end ? offset : -1;
+    }
+
+    // Visit every key (first field) without decoding the rest of each record
+    public void forEachKey(Consumer<String> visitor) {
+        int offset = HEADER_BYTES + slotCount * 4;
+        for (int i = 0; i < recordCount; i++) {
+            int length = buffer.getInt(offset + 4);
+            byte[] bytes = new byte[length];
+            buffer.get(offset + 8, bytes);
+            visitor.accept(new String(bytes, StandardCharsets.UTF_8));
+            offset += encodedLength(offset);
+        }
+    }
+
+    private String[] decode(int offset) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        String[] row = new String[view.getInt()];
+        for (int i = 0; i < row.length; i++) {
+            byte[] bytes = new byte[view.getInt()];
+            view.get(bytes);
+            row[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return row;
+    }
+
+    private int encodedLength(int offset) {
+        int position = offset;
+        int fields = buffer.getInt(position);
+        position += 4;
+        for (int i = 0; i < fields; i++) {
+            position += 4 + buffer.getInt(position);
+        }
+        return position - offset;
+    }
+}
@@ -3,6 +3,11 @@ import java.util.Collection;
 import java.util.Date;
 
 public class Member {
+    // Reservation priority tiers (lower is served first)
+    public static final int TIER_ACCESSIBILITY = 0;
+    public static final int TIER_FACULTY = 1;
+    public static final int TIER_STANDARD = 2;
+
     private String memberId;
     private String name;
     private String email;
@@ -12,6 +17,8 @@ public class Member {
     private double totalFinesPaid;
     private boolean isActive;
     private int maxBooksAllowed;
+    private int priorityTier;
+    private String memberType; // Loan policy category, e.g. STUDENT or FACULTY
 
     public Member(String memberId, String name, String email) {
         this.memberId = memberId;
@@ -23,6 +30,8 @@ public class Member {
         this.totalFinesPaid = 0.0;
         this.isActive = true;
         this.maxBooksAllowed = 5; // Default limit
+        this.priorityTier = TIER_STANDARD;
+        this.memberType = "GENERAL";
     }
 
     // Constructor with additional details
@@ -36,6 +45,8 @@ public class Member {
         this.totalFinesPaid = 0.0;
         this.isActive = true;
         this.maxBooksAllowed = maxBooksAllowed;
+        this.priorityTier = TIER_STANDARD;
+        this.memberType = "GENERAL";
     }
 
     // Getters
@@ -48,6 +59,8 @@ public class Member {
     public double getTotalFinesPaid() { return totalFinesPaid; }
     public boolean isActive() { return isActive; }
     public int getMaxBooksAllowed() { return maxBooksAllowed; }
+    public int getPriorityTier() { return priorityTier; }
+    public String getMemberType() { return memberType; }
 
     // Setters
     public void setName(String name) { this.name = name; }
@@ -55,6 +68,8 @@ public class Member {
     public void setPhoneNumber(String phoneNumber) { this.phoneNumber = phoneNumber; }
     public void setMaxBooksAllowed(int maxBooksAllowed) { this.maxBooksAllowed = maxBooksAllowed; }
     public void setActive(boolean active) { this.isActive = active; }
+    public void setPriorityTier(int priorityTier) { this.priorityTier = priorityTier; }
+    public void setMemberType(String memberType) { this.memberType = memberType; }
 
     // Your original methods (kept exactly the same)
     public void borrowBook(Book book) {
@@ -76,6 +91,11 @@ public class Member {
         borrowedBooks.put(book.getIsbn(), book);
     }
 
+    // Record a loan the library has already approved; the loan policy, not maxBooksAllowed, sets the limit
+    public void addBorrowedBook(Book book) {
+        borrowedBooks.put(book.getIsbn(), book);
+    }
+
     public void returnBook(String isbn) {
         borrowedBooks.remove(isbn);
     }
@@ -0,0 +1,125 @@
+import java.util.*;
+
+// Secondary indexes over members, maintained by Library on every change:
+// - hash index on normalized email (O(1)); members sharing an address (e.g. a family) are all kept
+// - sorted index on lower-cased name for prefix lookups (O(log n + k))
+// - one bitmap per status flag over dense member ordinals, so filters like
+//   "active AND at limit" are word-wide AND operations instead of a member scan.
+//   Overdue status depends on the clock, so Library builds that bitmap per query (bitmapOf).
+public class MemberIndex {
+    private HashMap<String, Integer> ordinals; // Key: MemberID, Value: bitmap position
+    private ArrayList<String> memberIds;       // Bitmap position -> MemberID
+    private HashMap<String, Set<String>> byEmail; // Key: normalized email, Value: MemberIDs in registration (ordinal) order
+    private TreeMap<String, Set<String>> byName; // Key: lower-cased name, Value: MemberIDs
+    private HashMap<String, String[]> indexedKeys; // Key: MemberID, Value: {email, name} as indexed
+
+    private BitSet active;
+    private BitSet atLimit;     // Cannot borrow more general items (borrowed >= the policy's limit)
+
+    public MemberIndex() {
+        ordinals = new HashMap<>();
+        memberIds = new ArrayList<>();
+        byEmail = new HashMap<>();
+        byName = new TreeMap<>();
+        indexedKeys = new HashMap<>();
+        active = new BitSet();
+        atLimit = new BitSet();
+    }
+
+    public static String normalizeEmail(String email) {
+        return email == null ? "" : email.trim().toLowerCase();
+    }
+
+    // Add or re-index a member after any change to email, name, status or loans.
+    // loanLimit is the member's current total limit from the loan policy.
+    public void update(Member member, int loanLimit) {
+        String memberId = member.getMemberId();
+        Integer ordinal = ordinals.get(memberId);
+        if (ordinal == null) {
+            ordinal = memberIds.size();
+            ordinals.put(memberId, ordinal);
+            memberIds.add(memberId);
+        }
+
+        String email = normalizeEmail(member.getEmail());
+        String name = member.getName() == null ? "" : member.getName().toLowerCase();
+        String[] previous = indexedKeys.get(memberId);
+        // Loans re-index a member constantly; the email and name entries only move when those change
+        if (previous == null || !previous[0].equals(email) || !previous[1].equals(name)) {
+            if (previous != null) {
+                Set<String> sameEmail = byEmail.get(previous[0]);
+                if (sameEmail != null) {
+                    sameEmail.remove(memberId);
+                    if (sameEmail.isEmpty()) {
+                        byEmail.remove(previous[0]);
+                    }
+                }
+                Set<String> sameName = byName.get(previous[1]);
+                if (sameName != null) {
+                    sameName.remove(memberId);
+                    if (sameName.isEmpty()) {
+                        byName.remove(previous[1]);
+                    }
+                }
+            }
+            if (!email.isEmpty()) {
+                byEmail.computeIfAbsent(email, k -> new TreeSet<>(Comparator.comparingInt(ordinals::get))).add(memberId);
+            }
+            byName.computeIfAbsent(name, k -> new HashSet<>()).add(memberId);
+            indexedKeys.put(memberId, new String[] { email, name });
+        }
+
+        active.set(ordinal, member.isActive());
+        atLimit.set(ordinal, member.getBorrowedBooksCount() >= loanLimit);
+    }
+
+    // Lookups
+    public List<String> findByEmail(String email) {
+        Set<String> ids = byEmail.get(normalizeEmail(email));
+        return ids == null ? new ArrayList<>() : new ArrayList<>(ids);
+    }
+
+    public List<String> findByNamePrefix(String prefix) {
+        String from = prefix.toLowerCase();
+        List<String> result = new ArrayList<>();
+        for (Set<String> ids : byName.subMap(from, true, from + Character.MAX_VALUE, true).values()) {
+            result.addAll(ids);
+        }
+        return result;
+    }
+
+    // Bitmaps (copies; combine freely with and/andNot/or)
+    public BitSet activeBitmap() { return (BitSet) active.clone(); }
+    public BitSet atLimitBitmap() { return (BitSet) atLimit.clone(); }
+
+    public BitSet allBitmap() {
+        BitSet all = new BitSet(memberIds.size());
+        all.set(0, memberIds.size());
+        return all;
+    }
+
+    // MemberIDs -> bitmap (unknown IDs are skipped)
+    public BitSet bitmapOf(Collection<String> ids) {
+        BitSet bitmap = new BitSet(memberIds.size());
+        for (String memberId : ids) {
+            Integer ordinal = ordinals.get(memberId);
+            if (ordinal != null) {
+                bitmap.set(ordinal);
+            }
+        }
+        return bitmap;
+    }
+
+    // Bitmap -> MemberIDs
+    public List<String> memberIdsOf(BitSet bitmap) {
+        List<String> result = new ArrayList<>(bitmap.cardinality());
+        for (int i = bitmap.nextSetBit(0); i >= 0; i = bitmap.nextSetBit(i + 1)) {
+            result.add(memberIds.get(i));
+        }
+        return result;
+    }
+
+    public int size() {
+        return memberIds.size();
+    }
+}
@@ -0,0 +1,36 @@
+// One message to a member, as stored in the outbox
+public final class Notification {
+    public static final String HOLD_AVAILABLE = "HOLD_AVAILABLE";
+    public static final String OVERDUE = "OVERDUE";
+
+    private final String id;
+    private final String type;
+    private final String memberId;
+    private final String recipient; // Email address (or phone number for SMS channels)
+    private final String message;
+
+    public Notification(String id, String type, String memberId, String recipient, String message) {
+        this.id = id;
+        this.type = type;
+        this.memberId = memberId;
+        this.recipient = recipient;
+        this.message = message;
+    }
+
+    // Getters
+    public String getId() { return id; }
+    public String getType() { return type; }
+    public String getMemberId() { return memberId; }
+    public String getRecipient() { return recipient; }
+    public String getMessage() { return message; }
+
+    @Override
+    public String toString() {
+        return "Notification{" +
+                "ID='" + id + '\'' +
+                ", Type=" + type +
+                ", To='" + recipient + '\'' +
+                ", Message='" + message + '\'' +
+                '}';
+    }
+}
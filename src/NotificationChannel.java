@@ -0,0 +1,8 @@
+import java.io.IOException;
+import java.util.List;
+
+// Delivery channel (email, SMS, ...). A batch holds notifications for one recipient
+// and should be delivered as a single message; throwing means the batch will be retried.
+public interface NotificationChannel {
+    void send(String recipient, List<Notification> batch) throws IOException;
+}
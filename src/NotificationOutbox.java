@@ -0,0 +1,176 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+// Durable outbox: every notification is appended to a log file before it is queued, and a
+// DONE line is appended once it has been delivered (or given up on). On startup, anything
+// logged but not marked done is queued again, so a crash never loses a notification.
+// It also records which open loans have had an overdue notice, and when (NOTICE lines), so a
+// restart does not send every overdue notice again.
+// Once the file is mostly delivered entries it is rewritten with only the pending ones.
+public class NotificationOutbox {
+    private static final int COMPACT_MIN_LINES = 10000;
+
+    private final String path;
+    private final LinkedHashMap<String, Notification> pending; // Key: notification ID, in arrival order
+    private final HashMap<String, Long> overdueNotices;       // Key: memberId + "|" + isbn, Value: last sent
+    private PrintWriter log;
+    private int linesWritten; // Lines in the file since it was last rewritten
+
+    public NotificationOutbox(String path) throws IOException {
+        this.path = path;
+        this.pending = new LinkedHashMap<>();
+        this.overdueNotices = new HashMap<>();
+        recover();
+        compact();
+    }
+
+    private void recover() throws IOException {
+        File file = new File(path);
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                linesWritten++;
+                String[] parts = line.split("\t", -1);
+                if (parts[0].equals("PENDING") && parts.length == 6) {
+                    pending.put(parts[1], new Notification(parts[1], parts[2], parts[3], parts[4], parts[5]));
+                } else if (parts[0].equals("DONE") && parts.length == 2) {
+                    pending.remove(parts[1]);
+                } else if (parts[0].equals("NOTICE") && parts.length == 3) {
+                    overdueNotices.put(parts[1], Long.parseLong(parts[2]));
+                }
+            }
+        }
+        if (!pending.isEmpty()) {
+            System.out.println("Recovered " + pending.size() + " undelivered notifications from outbox.");
+        }
+    }
+
+    public synchronized void append(Notification notification) {
+        writePending(log, notification);
+        linesWritten++;
+        flush();
+        pending.put(notification.getId(), notification);
+    }
+
+    // Remember that a loan had an overdue notice at the given time
+    public synchronized void recordOverdueNotice(String loanKey, long sentAt) {
+        overdueNotices.put(loanKey, sentAt);
+        writeNotice(log, loanKey, sentAt);
+        linesWritten++;
+        flush();
+    }
+
+    // When the loan last had an overdue notice, or null
+    public synchronized Long overdueNoticeSentAt(String loanKey) {
+        return overdueNotices.get(loanKey);
+    }
+
+    // Forget loans that have closed; the next compaction drops their NOTICE lines
+    public synchronized void forgetOverdueNotice(String loanKey) {
+        overdueNotices.remove(loanKey);
+    }
+
+    public synchronized void retainOverdueNotices(Set<String> openLoanKeys) {
+        overdueNotices.keySet().retainAll(openLoanKeys);
+    }
+
+    public synchronized int overdueNoticeCount() {
+        return overdueNotices.size();
+    }
+
+    public synchronized void markDone(Collection<Notification> notifications) {
+        for (Notification notification : notifications) {
+            log.println("DONE\t" + notification.getId());
+            linesWritten++;
+            pending.remove(notification.getId());
+        }
+        flush();
+        if (linesWritten > COMPACT_MIN_LINES && linesWritten > (pending.size() + overdueNotices.size()) * 4) {
+            try {
+                compact();
+            } catch (IOException e) {
+                System.out.println("Failed to compact notification outbox: " + e.getMessage());
+            }
+        }
+    }
+
+    // PrintWriter never throws; a failed write only shows up here. The entry is still
+    // delivered from memory, but would not survive a restart, so say so and reopen the file.
+    private void flush() {
+        log.flush();
+        if (log.checkError()) {
+            System.out.println("Failed to write notification outbox " + path +
+                    "; recent notifications will not be recovered after a restart.");
+            log.close();
+            try {
+                log = new PrintWriter(new BufferedWriter(new FileWriter(path, true)));
+            } catch (IOException e) {
+                System.out.println("Cannot reopen notification outbox: " + e.getMessage());
+            }
+        }
+    }
+
+    // Rewrite the file with only the pending entries and notice times, then keep appending to the new file
+    private void compact() throws IOException {
+        File temp = new File(path + ".tmp");
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(temp)))) {
+            for (Notification notification : pending.values()) {
+                writePending(out, notification);
+            }
+            for (Map.Entry<String, Long> notice : overdueNotices.entrySet()) {
+                writeNotice(out, notice.getKey(), notice.getValue());
+            }
+            if (out.checkError()) {
+                throw new IOException("write to " + temp + " failed");
+            }
+        }
+        if (log != null) {
+            log.close();
+        }
+        try {
+            Files.move(temp.toPath(), new File(path).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            linesWritten = pending.size() + overdueNotices.size();
+        } finally {
+            log = new PrintWriter(new BufferedWriter(new FileWriter(path, true)));
+        }
+    }
+
+    private static void writePending(PrintWriter out, Notification notification) {
+        out.println("PENDING\t" + notification.getId() + "\t" + notification.getType() + "\t" +
+                clean(notification.getMemberId()) + "\t" + clean(notification.getRecipient()) + "\t" +
+                clean(notification.getMessage()));
+    }
+
+    private static void writeNotice(PrintWriter out, String loanKey, long sentAt) {
+        out.println("NOTICE\t" + clean(loanKey) + "\t" + sentAt);
+    }
+
+    // Take everything pending that is not already being delivered
+    public synchronized List<Notification> pendingExcept(Set<String> inFlight) {
+        List<Notification> result = new ArrayList<>();
+        for (Notification notification : pending.values()) {
+            if (!inFlight.contains(notification.getId())) {
+                result.add(notification);
+            }
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    public synchronized void close() {
+        log.close();
+    }
+
+    private static String clean(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
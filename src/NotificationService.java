@@ -0,0 +1,167 @@
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Notification fan-out. A notification is appended to the durable outbox before the event
+// handler returns (one line and a flush, under the library lock), so a crash right after the
+// event cannot lose it; delivery is left to the dispatcher thread. The dispatcher groups pending
+// entries by recipient and type, so five overdue items become one message, and hands each batch
+// to a worker pool. Each recipient gets at most one message per interval, and failed batches are
+// retried with exponential backoff. Which loans had an overdue notice is kept in the outbox too.
+public class NotificationService implements LibraryListener {
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_MILLIS = 1000;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final Library library;
+    private final NotificationOutbox outbox;
+    private final NotificationChannel channel;
+    private final long minIntervalMillis; // Per-recipient rate limit
+    private final ExecutorService workers;
+    private final ScheduledExecutorService dispatcher;
+    private final Set<String> inFlight;                     // Notification IDs currently being delivered
+    private final ConcurrentHashMap<String, Long> nextSendAllowed; // Key: recipient
+
+    public NotificationService(Library library, NotificationOutbox outbox, NotificationChannel channel,
+                               int workerCount, long minIntervalMillis) {
+        this.library = library;
+        this.outbox = outbox;
+        this.channel = channel;
+        this.minIntervalMillis = minIntervalMillis;
+        this.workers = Executors.newFixedThreadPool(workerCount, daemon("notification-worker"));
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(daemon("notification-dispatcher"));
+        this.inFlight = ConcurrentHashMap.newKeySet();
+        this.nextSendAllowed = new ConcurrentHashMap<>();
+        library.addListener(this);
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public void start(long dispatchIntervalMillis) {
+        dispatcher.scheduleWithFixedDelay(this::dispatch, dispatchIntervalMillis, dispatchIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        dispatcher.scheduleAtFixedRate(() -> scanOverdue(System.currentTimeMillis()), 0, 1, TimeUnit.HOURS);
+    }
+
+    public void stop() {
+        dispatcher.shutdown();
+        workers.shutdown();
+    }
+
+    // Hold placed on the pickup shelf -> "your hold is ready". A return ends the loan's overdue notices.
+    @Override
+    public void onEvent(CirculationEvent event) {
+        if (CirculationEvent.HOLD_PLACED.equals(event.getType())) {
+            Member member = library.searchMember(event.getMemberId());
+            Notification notification = member == null ? null : notificationFor(Notification.HOLD_AVAILABLE,
+                    member, "\"" + event.getName() + "\" is ready for pickup (ISBN " + event.getIsbn() + ").");
+            if (notification != null) {
+                outbox.append(notification);
+            }
+        } else if (CirculationEvent.RETURN.equals(event.getType())) {
+            outbox.forgetOverdueNotice(event.getMemberId() + "|" + event.getIsbn());
+        }
+    }
+
+    // Queue an overdue notice for every open overdue loan, at most once a day per loan.
+    // Only open loans are copied under the library lock; the overdue check runs after it is released.
+    public void scanOverdue(long now) {
+        List<Transaction> open;
+        synchronized (library) {
+            open = new ArrayList<>(library.getLoans().openLoans());
+        }
+        Set<String> openKeys = new HashSet<>();
+        for (Transaction loan : open) {
+            String key = loan.getMemberId() + "|" + loan.getBookIsbn();
+            openKeys.add(key);
+            if (loan.isReturned() || loan.getDueDate().getTime() >= now) {
+                continue;
+            }
+            Long lastSent = outbox.overdueNoticeSentAt(key);
+            if (lastSent != null && now - lastSent < DAY_MILLIS) {
+                continue;
+            }
+            Member member = library.searchMember(loan.getMemberId());
+            if (member != null) {
+                Book book = library.searchBook(loan.getBookIsbn());
+                String title = book != null ? book.getTitle() : loan.getBookIsbn();
+                Notification notification = notificationFor(Notification.OVERDUE, member, "\"" + title +
+                        "\" was due on " + loan.getDueDate() + " (current fine: ₹" + loan.getCurrentFine() + ").");
+                if (notification != null) {
+                    outbox.append(notification);
+                }
+                outbox.recordOverdueNotice(key, now);
+            }
+        }
+        // A return that raced with this scan may have been missed by onEvent
+        outbox.retainOverdueNotices(openKeys);
+    }
+
+    // null if the member has no address to send to
+    private static Notification notificationFor(String type, Member member, String message) {
+        if (member.getEmail() == null || member.getEmail().isEmpty()) {
+            return null;
+        }
+        return new Notification(UUID.randomUUID().toString(), type, member.getMemberId(), member.getEmail(), message);
+    }
+
+    // Loans currently remembered as having had an overdue notice
+    public int getOverdueNoticeCount() {
+        return outbox.overdueNoticeCount();
+    }
+
+    // Group pending notifications by recipient and type and hand each batch to a worker
+    public void dispatch() {
+        long now = System.currentTimeMillis();
+        LinkedHashMap<String, List<Notification>> batches = new LinkedHashMap<>();
+        for (Notification notification : outbox.pendingExcept(inFlight)) {
+            batches.computeIfAbsent(notification.getRecipient() + "|" + notification.getType(),
+                    k -> new ArrayList<>()).add(notification);
+        }
+        for (List<Notification> batch : batches.values()) {
+            String recipient = batch.get(0).getRecipient();
+            if (nextSendAllowed.getOrDefault(recipient, 0L) > now) {
+                continue; // Rate limited: stays pending and keeps coalescing
+            }
+            nextSendAllowed.put(recipient, now + minIntervalMillis);
+            for (Notification notification : batch) {
+                inFlight.add(notification.getId());
+            }
+            workers.submit(() -> deliver(recipient, batch, 1));
+        }
+    }
+
+    private void deliver(String recipient, List<Notification> batch, int attempt) {
+        try {
+            channel.send(recipient, batch);
+            finish(batch);
+        } catch (IOException e) {
+            if (attempt >= MAX_ATTEMPTS) {
+                System.out.println("Giving up on " + batch.size() + " notification(s) to " + recipient +
+                        " after " + attempt + " attempts: " + e.getMessage());
+                finish(batch);
+                return;
+            }
+            long backoff = BASE_BACKOFF_MILLIS << (attempt - 1);
+            dispatcher.schedule(() -> workers.submit(() -> deliver(recipient, batch, attempt + 1)),
+                    backoff, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void finish(List<Notification> batch) {
+        outbox.markDone(batch);
+        for (Notification notification : batch) {
+            inFlight.remove(notification.getId());
+        }
+    }
+
+    public int getPendingCount() {
+        return outbox.size();
+    }
+}
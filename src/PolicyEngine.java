@@ -0,0 +1,77 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+// Holds the active LoanPolicy. A reload compiles the new file completely before swapping it in
+// with one atomic write, so checkouts never wait and never see a half-loaded policy.
+public class PolicyEngine {
+    private final AtomicReference<LoanPolicy> current;
+    private ScheduledExecutorService watcher;
+    private volatile Consumer<LoanPolicy> reloadListener; // Told of every policy swapped in
+
+    public PolicyEngine() {
+        current = new AtomicReference<>(LoanPolicy.defaults());
+    }
+
+    public LoanPolicy current() {
+        return current.get();
+    }
+
+    public void setReloadListener(Consumer<LoanPolicy> listener) {
+        this.reloadListener = listener;
+    }
+
+    // Swap in an already compiled policy
+    public void install(LoanPolicy policy) {
+        current.set(policy);
+        Consumer<LoanPolicy> listener = reloadListener;
+        if (listener != null) {
+            listener.accept(policy);
+        }
+    }
+
+    // Compile and swap; on error the previous policy stays active
+    public boolean reload(String path) {
+        try {
+            LoanPolicy policy = LoanPolicy.load(path);
+            install(policy);
+            System.out.println("Loan policy loaded from " + path + " (" + policy.getRuleCount() + " rules)");
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Loan policy not reloaded: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Poll the file and reload whenever it changes
+    public synchronized void watch(String path, long intervalMillis) {
+        if (watcher != null) {
+            return;
+        }
+        File file = new File(path);
+        long[] lastModified = { file.lastModified() };
+        watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "policy-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watcher.scheduleWithFixedDelay(() -> {
+            long modified = file.lastModified();
+            if (modified != lastModified[0]) {
+                lastModified[0] = modified;
+                reload(path);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopWatching() {
+        if (watcher != null) {
+            watcher.shutdown();
+            watcher = null;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+// Deterministic replay of a circulation log into a fresh Library.
+// The library's clock follows event timestamps, so loans and holds get exactly the dates they
+// had originally. Replay can stop at any point in time, and can run "what if" scenarios with
+// more copies per title; in that mode hold expiry is simulated from the replayed clock instead
+// of copying the original HOLD_EXPIRED events, since the holds themselves will differ.
+public class ReplayEngine {
+    private double extraCopiesFraction;
+    private boolean simulateHoldExpiry;
+
+    public ReplayEngine() {
+        this.extraCopiesFraction = 0.0;
+        this.simulateHoldExpiry = false;
+    }
+
+    // What-if: every title gets this fraction more copies (0.2 = 20% more, rounded up)
+    public ReplayEngine withExtraCopies(double fraction) {
+        this.extraCopiesFraction = fraction;
+        this.simulateHoldExpiry = true;
+        return this;
+    }
+
+    public ReplayResult replay(String logPath) throws IOException {
+        return replayUntil(logPath, Long.MAX_VALUE);
+    }
+
+    // Rebuild the state as it was at the given time
+    public ReplayResult replayUntil(String logPath, long untilTimestamp) throws IOException {
+        Library library = new Library();
+        library.setQuiet(true);
+        long[] clock = { 0 };
+        library.setClock(() -> clock[0]);
+
+        HashMap<String, Long> waitingSince = new HashMap<>(); // Key: memberId + "|" + isbn
+        long[] holdStats = new long[3]; // placed, total wait, max wait
+        library.addListener(event -> {
+            if (CirculationEvent.HOLD_PLACED.equals(event.getType())) {
+                Long since = waitingSince.remove(event.getMemberId() + "|" + event.getIsbn());
+                if (since != null) {
+                    long wait = event.getTimestamp() - since;
+                    holdStats[0]++;
+                    holdStats[1] += wait;
+                    holdStats[2] = Math.max(holdStats[2], wait);
+                }
+            }
+        });
+
+        long[] applied = { 0 };
+        long start = System.nanoTime();
+        // The log is in time order, so reading stops at the first event past the cutoff
+        EventLog.scan(logPath, event -> {
+            if (event.getTimestamp() > untilTimestamp) {
+                return false;
+            }
+            clock[0] = event.getTimestamp();
+            if (simulateHoldExpiry) {
+                library.processExpiredHolds(clock[0]);
+                if (CirculationEvent.HOLD_EXPIRED.equals(event.getType())) {
+                    return true;
+                }
+            }
+            apply(library, event);
+            if (CirculationEvent.BORROW.equals(event.getType())) {
+                Book book = library.searchBook(event.getIsbn());
+                if (book != null && book.isInQueue(event.getMemberId())) {
+                    waitingSince.putIfAbsent(event.getMemberId() + "|" + event.getIsbn(), clock[0]);
+                }
+            }
+            applied[0]++;
+            return true;
+        });
+        long elapsed = System.nanoTime() - start;
+        return new ReplayResult(library, applied[0], elapsed, holdStats[0], holdStats[1], holdStats[2],
+                waitingSince.size());
+    }
+
+    // Bring a live library up to date at startup: apply the events logged after the given
+    // sequence, on the logged clock, before any listener is attached. Returns the last sequence
+    // applied (or afterSequence if the log has nothing newer).
+    public static long replayInto(Library library, String logPath, long afterSequence) throws IOException {
+        Catchup catchup = new Catchup(library, afterSequence);
+        try {
+            EventLog.forEach(logPath, catchup);
+        } finally {
+            catchup.finish();
+        }
+        return catchup.getLastSequence();
+    }
+
+    // replayInto as a visitor, for a caller that is already reading the log (Main feeds it from
+    // EventLog's opening scan). The library runs quiet on the logged clock until finish(), which
+    // puts back the caller's clock and quiet setting and continues the event numbering.
+    public static final class Catchup implements Consumer<CirculationEvent> {
+        private final Library library;
+        private final long afterSequence;
+        private final LongSupplier previousClock;
+        private final boolean previousQuiet;
+        private long eventTime;
+        private long lastSequence;
+
+        public Catchup(Library library, long afterSequence) {
+            this.library = library;
+            this.afterSequence = afterSequence;
+            this.lastSequence = afterSequence;
+            this.previousClock = library.getClock();
+            this.previousQuiet = library.isQuiet();
+            library.setClock(() -> eventTime);
+            library.setQuiet(true);
+        }
+
+        @Override
+        public void accept(CirculationEvent event) {
+            if (event.getSequence() <= afterSequence) {
+                return;
+            }
+            eventTime = event.getTimestamp();
+            event.applyTo(library);
+            lastSequence = event.getSequence();
+        }
+
+        public void finish() {
+            library.setClock(previousClock);
+            library.setQuiet(previousQuiet);
+            library.setEventSequence(lastSequence);
+        }
+
+        public long getLastSequence() {
+            return lastSequence;
+        }
+    }
+
+    private void apply(Library library, CirculationEvent event) {
+        if (CirculationEvent.ADD_BOOK.equals(event.getType()) && extraCopiesFraction != 0.0) {
+            int copies = (int) Math.ceil(event.getCopies() * (1 + extraCopiesFraction));
+            library.addBook(event.getIsbn(), event.getName(), event.getDetail(), copies);
+            return;
+        }
+        event.applyTo(library);
+    }
+}
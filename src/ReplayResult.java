@@ -0,0 +1,47 @@
+// Outcome of a replay: the rebuilt library plus queue wait statistics
+public class ReplayResult {
+    private final Library library;
+    private final long eventsApplied;
+    private final long elapsedNanos;
+    private final long holdsPlaced;
+    private final long totalWaitMillis;
+    private final long maxWaitMillis;
+    private final int stillWaiting;
+
+    public ReplayResult(Library library, long eventsApplied, long elapsedNanos, long holdsPlaced,
+                        long totalWaitMillis, long maxWaitMillis, int stillWaiting) {
+        this.library = library;
+        this.eventsApplied = eventsApplied;
+        this.elapsedNanos = elapsedNanos;
+        this.holdsPlaced = holdsPlaced;
+        this.totalWaitMillis = totalWaitMillis;
+        this.maxWaitMillis = maxWaitMillis;
+        this.stillWaiting = stillWaiting;
+    }
+
+    // Getters
+    public Library getLibrary() { return library; }
+    public long getEventsApplied() { return eventsApplied; }
+    public long getElapsedNanos() { return elapsedNanos; }
+    public long getHoldsPlaced() { return holdsPlaced; }
+    public long getMaxWaitMillis() { return maxWaitMillis; }
+    public int getStillWaiting() { return stillWaiting; }
+
+    public double getAverageWaitHours() {
+        return holdsPlaced == 0 ? 0.0 : totalWaitMillis / (double) holdsPlaced / (60 * 60 * 1000);
+    }
+
+    public double getEventsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : eventsApplied * 1e9 / elapsedNanos;
+    }
+
+    public void displaySummary() {
+        System.out.println("\n===== Replay Summary =====");
+        System.out.println("Events Applied: " + eventsApplied);
+        System.out.println("Replay Speed: " + String.format("%.0f", getEventsPerSecond()) + " events/sec");
+        System.out.println("Holds Placed: " + holdsPlaced);
+        System.out.println("Average Queue Wait: " + String.format("%.1f", getAverageWaitHours()) + " hours");
+        System.out.println("Longest Queue Wait: " + String.format("%.1f", maxWaitMillis / 3600000.0) + " hours");
+        System.out.println("Still Waiting: " + stillWaiting);
+    }
+}
@@ -0,0 +1,123 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.List;
+
+// Read replica: applies the primary's operation stream to a local Library and serves read traffic.
+// The local clock follows the primary's event timestamps while applying, and borrows and renewals
+// carry the primary's due dates and limits, so the replica ends up with the same loans.
+// After each batch the replica acknowledges its position, which lets the primary trim its log.
+// A new replica starts empty at sequence 0; once the primary has trimmed, it is first seeded
+// from the circulation log (or built from a snapshot with its sequence) and streams from there.
+// Can be promoted to a standalone primary when the original primary fails.
+public class ReplicaLibrary {
+    private final Library library;
+    private volatile long lastAppliedSequence;
+    private volatile boolean running;
+    private volatile long eventTime; // Timestamp of the event being applied
+    private Socket socket;
+    private DataOutputStream acks;
+    private Thread reader;
+
+    public ReplicaLibrary() {
+        this(new Library(), 0);
+    }
+
+    // Start from a library already holding the state up to startingSequence (e.g. a restored snapshot)
+    public ReplicaLibrary(Library seeded, long startingSequence) {
+        this.library = seeded;
+        this.lastAppliedSequence = startingSequence;
+        library.setClock(() -> eventTime);
+    }
+
+    // Before connecting: apply the circulation log past the current position; returns the new position
+    public long seedFromLog(String logPath) throws IOException {
+        synchronized (library) {
+            lastAppliedSequence = ReplayEngine.replayInto(library, logPath, lastAppliedSequence); // Keeps our clock
+        }
+        return lastAppliedSequence;
+    }
+
+    // Connect to a primary on the local host and start applying its stream
+    public void connect(int port) throws IOException {
+        socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        acks = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        acks.writeLong(lastAppliedSequence);
+        acks.flush();
+        running = true;
+        reader = new Thread(this::applyLoop, "replica-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void applyLoop() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (running) {
+                CirculationEvent event = CirculationEvent.readFrom(in);
+                synchronized (library) {
+                    eventTime = event.getTimestamp();
+                    event.applyTo(library);
+                    lastAppliedSequence = event.getSequence();
+                }
+                if (in.available() == 0) {
+                    acks.writeLong(lastAppliedSequence); // End of what the primary has sent so far
+                    acks.flush();
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                System.out.println("Lost connection to primary at sequence " + lastAppliedSequence + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public long getLastAppliedSequence() {
+        return lastAppliedSequence;
+    }
+
+    // Read traffic
+    public Book searchBook(String isbn) {
+        synchronized (library) {
+            return library.searchBook(isbn);
+        }
+    }
+
+    public List<Book> searchByTitle(String keyword) {
+        synchronized (library) {
+            return library.searchByTitle(keyword);
+        }
+    }
+
+    public void displayAllBooks() {
+        synchronized (library) {
+            library.displayAllBooks();
+        }
+    }
+
+    public void displayAllMembers() {
+        synchronized (library) {
+            library.displayAllMembers();
+        }
+    }
+
+    // Stop following the primary and hand over the local state as the new primary
+    public Library promote() {
+        running = false;
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+            if (reader != null) {
+                reader.join();
+            }
+        } catch (IOException e) {
+            System.out.println("Error closing replica socket: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        library.setClock(System::currentTimeMillis);
+        library.setEventSequence(lastAppliedSequence); // New events continue the primary's numbering
+        System.out.println("Replica promoted to primary at sequence " + lastAppliedSequence);
+        return library;
+    }
+}
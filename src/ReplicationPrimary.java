@@ -0,0 +1,201 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+// Primary side of log-shipping replication.
+// Applied operations are appended to an in-memory ordered log; each connected replica gets its
+// own sender thread that streams the log from the replica's last applied sequence number.
+// The checkout path only pays for one append under a short lock.
+// Replicas acknowledge what they have applied, and the log is trimmed up to the lowest
+// acknowledgement, so it holds only what some connected replica still needs. Retention is also
+// capped at maxRetained events whether or not replicas are connected or keeping up; a replica
+// that is (or falls) behind the trimmed part is refused or dropped, and rejoins after seeding
+// from the circulation log (ReplicaLibrary.seedFromLog).
+public class ReplicationPrimary implements LibraryListener {
+    private static final int TRIM_BATCH = 1024; // Trim in chunks so the shift is amortized
+    private static final long ACK_POLL_MILLIS = 100;
+
+    private final int maxRetained;
+    private final List<CirculationEvent> log;
+    private final List<long[]> replicaAcks; // Per connected replica: last acknowledged sequence
+    private long logStart;                  // Position of log.get(0) in the full stream
+    private long trimmedThrough;            // Highest sequence trimmed away
+    private ServerSocket serverSocket;
+    private volatile boolean running;
+
+    public ReplicationPrimary(Library primary) {
+        this(primary, 100000);
+    }
+
+    public ReplicationPrimary(Library primary, int maxRetained) {
+        this.maxRetained = maxRetained;
+        this.log = new ArrayList<>();
+        this.replicaAcks = new ArrayList<>();
+        primary.addListener(this);
+    }
+
+    @Override
+    public void onEvent(CirculationEvent event) {
+        synchronized (log) {
+            log.add(event);
+            trimIfOverRetention();
+            log.notifyAll();
+        }
+    }
+
+    @Override
+    public void onEvents(List<CirculationEvent> events) {
+        synchronized (log) {
+            log.addAll(events);
+            trimIfOverRetention();
+            log.notifyAll();
+        }
+    }
+
+    public long getTrimmedThrough() {
+        synchronized (log) {
+            return trimmedThrough;
+        }
+    }
+
+    public int getLogSize() {
+        synchronized (log) {
+            return log.size();
+        }
+    }
+
+    // Start accepting replicas on a loopback port (0 picks a free port)
+    public int start(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        running = true;
+        Thread acceptor = new Thread(this::acceptLoop, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return serverSocket.getLocalPort();
+    }
+
+    public void stop() {
+        running = false;
+        synchronized (log) {
+            log.notifyAll();
+        }
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            System.out.println("Error closing replication socket: " + e.getMessage());
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread sender = new Thread(() -> streamTo(socket), "replication-sender");
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                if (running) {
+                    System.out.println("Replication accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Handshake: the replica sends the last sequence it has applied, then receives everything after it
+    // and sends back its position after each batch
+    private void streamTo(Socket socket) {
+        long[] acked = new long[1];
+        try (Socket s = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            acked[0] = in.readLong();
+            long next;
+            synchronized (log) {
+                if (acked[0] < trimmedThrough) {
+                    System.out.println("Replica at sequence " + acked[0] + " is behind the retained log (trimmed through " +
+                            trimmedThrough + "); reseed it from the circulation log.");
+                    return;
+                }
+                next = logStart;
+                while (next - logStart < log.size() && log.get((int) (next - logStart)).getSequence() <= acked[0]) {
+                    next++;
+                }
+                replicaAcks.add(acked);
+            }
+            while (running) {
+                while (in.available() >= 8) {
+                    long sequence = in.readLong();
+                    synchronized (log) {
+                        acked[0] = sequence;
+                        trim();
+                    }
+                }
+                List<CirculationEvent> batch;
+                synchronized (log) {
+                    if (running && next - logStart >= log.size()) {
+                        log.wait(ACK_POLL_MILLIS); // Wake now and then to take acknowledgements while idle
+                    }
+                    if (next < logStart) {
+                        System.out.println("Replica at sequence " + acked[0] + " fell behind the retained log (trimmed through " +
+                                trimmedThrough + "); reseed it from the circulation log.");
+                        return;
+                    }
+                    if (next - logStart >= log.size()) {
+                        continue;
+                    }
+                    batch = new ArrayList<>(log.subList((int) (next - logStart), log.size()));
+                }
+                for (CirculationEvent event : batch) {
+                    event.writeTo(out);
+                }
+                out.flush();
+                next += batch.size();
+            }
+        } catch (IOException e) {
+            System.out.println("Replica disconnected: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (log) {
+                replicaAcks.remove(acked);
+            }
+        }
+    }
+
+    // Caller holds the log lock
+    private void trimIfOverRetention() {
+        if (log.size() - maxRetained >= TRIM_BATCH) {
+            trim();
+        }
+    }
+
+    // Drop the prefix every connected replica has acknowledged, and anything past the retention
+    // cap even if a replica still needs it (caller holds the log lock)
+    private void trim() {
+        long lowest = replicaAcks.isEmpty() ? Long.MIN_VALUE : Long.MAX_VALUE;
+        for (long[] acked : replicaAcks) {
+            lowest = Math.min(lowest, acked[0]);
+        }
+        int low = 0;
+        int high = log.size(); // Events are in sequence order: find how many are <= lowest
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (log.get(mid).getSequence() <= lowest) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        low = Math.max(low, log.size() - maxRetained);
+        if (low >= TRIM_BATCH || (low > 0 && low == log.size())) {
+            trimmedThrough = log.get(low - 1).getSequence();
+            log.subList(0, low).clear();
+            logStart += low;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+import java.util.ArrayList;
+
+// Bounded, time-expiring table of client request IDs and the results they produced.
+// Entries live in an open-addressed table (parallel arrays, linear probing, backward-shift
+// deletion) and are expired by a time wheel: one bucket per tick, so expiry touches only the
+// requests that actually time out instead of scanning the table.
+// An entry is filed under the first tick after it expires, so it is dropped within one tick of
+// its TTL. Refreshing an entry files it again; each slot remembers which tick it is filed
+// under, and references left behind in older buckets are skipped.
+// Time never moves backwards here: a clock stepped back is held at the latest time seen, so
+// every live entry stays filed ahead of the wheel and eviction always finds one.
+public class RequestDeduplicator {
+    private final String[] keys;
+    private final int[] results;
+    private final long[] expiresAt;
+    private final long[] filedTick; // Wheel tick whose bucket holds the live reference to the slot
+    private final int mask;
+    private final int maxEntries;
+    private int size;
+
+    private final ArrayList<ArrayList<String>> wheel;
+    private final long tickMillis;
+    private final long ttlMillis;
+    private long currentTick;
+    private boolean started;
+    private long lastNow;
+
+    public RequestDeduplicator(int maxEntries, long ttlMillis, long tickMillis) {
+        if (maxEntries <= 0 || ttlMillis <= 0 || tickMillis <= 0) {
+            throw new IllegalArgumentException("Capacity, TTL and tick must be positive");
+        }
+        int capacity = Integer.highestOneBit(maxEntries * 2 - 1) << 1;
+        this.keys = new String[capacity];
+        this.results = new int[capacity];
+        this.expiresAt = new long[capacity];
+        this.filedTick = new long[capacity];
+        this.mask = capacity - 1;
+        this.maxEntries = maxEntries;
+        this.size = 0;
+        this.ttlMillis = ttlMillis;
+        this.tickMillis = tickMillis;
+        // An entry is at most ceil(ttl / tick) + 1 ticks ahead, so it never shares a bucket with the current tick
+        int buckets = (int) ((ttlMillis + tickMillis - 1) / tickMillis) + 2;
+        this.wheel = new ArrayList<>(buckets);
+        for (int i = 0; i < buckets; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        this.currentTick = 0;
+        this.started = false;
+    }
+
+    // Cached result for a replayed request, or null if it has not been seen (or has expired)
+    public synchronized Integer lookup(String requestId, long now) {
+        now = advance(now);
+        int slot = find(requestId);
+        if (slot < 0 || expiresAt[slot] <= now) {
+            return null;
+        }
+        return results[slot];
+    }
+
+    // Remember the result of a completed request; recording an existing ID refreshes its expiry
+    public synchronized void record(String requestId, int result, long now) {
+        now = advance(now);
+        int slot = find(requestId);
+        if (slot < 0) {
+            while (size >= maxEntries) {
+                evictOldestBucket();
+            }
+            slot = indexFor(requestId);
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = requestId;
+            size++;
+        }
+        results[slot] = result;
+        expiresAt[slot] = now + ttlMillis;
+        filedTick[slot] = expiresAt[slot] / tickMillis + 1;
+        wheel.get(bucketFor(filedTick[slot])).add(requestId);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private int bucketFor(long tick) {
+        return (int) Math.floorMod(tick, (long) wheel.size());
+    }
+
+    private int indexFor(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private int find(String key) {
+        int slot = indexFor(key);
+        while (keys[slot] != null) {
+            if (keys[slot].equals(key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Move the wheel forward to the current time, expiring each bucket passed; returns the
+    // time to use, which is never earlier than a time already seen
+    private long advance(long now) {
+        if (started && now < lastNow) {
+            now = lastNow;
+        }
+        lastNow = now;
+        long tick = now / tickMillis;
+        if (!started || tick - currentTick > wheel.size()) {
+            currentTick = tick - wheel.size();
+            started = true;
+        }
+        while (currentTick < tick) {
+            currentTick++;
+            expireBucket(currentTick);
+        }
+        return now;
+    }
+
+    // Everything filed under a tick the wheel has reached has expired
+    private void expireBucket(long tick) {
+        ArrayList<String> bucket = wheel.get(bucketFor(tick));
+        for (String key : bucket) {
+            int slot = find(key);
+            if (slot >= 0 && filedTick[slot] == tick) { // Else already removed, or refreshed under a later tick
+                remove(slot);
+            }
+        }
+        bucket.clear();
+    }
+
+    // Table is full: drop the bucket closest to expiry
+    private void evictOldestBucket() {
+        for (int i = 1; i <= wheel.size(); i++) {
+            long tick = currentTick + i;
+            ArrayList<String> bucket = wheel.get(bucketFor(tick));
+            boolean evicted = false;
+            for (String key : bucket) {
+                int slot = find(key);
+                if (slot >= 0 && filedTick[slot] == tick) {
+                    remove(slot);
+                    evicted = true;
+                }
+            }
+            bucket.clear();
+            if (evicted) {
+                return;
+            }
+        }
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void remove(int slot) {
+        keys[slot] = null;
+        size--;
+        int next = (slot + 1) & mask;
+        while (keys[next] != null) {
+            int home = indexFor(keys[next]);
+            boolean movable = slot <= next ? (home <= slot || home > next) : (home <= slot && home > next);
+            if (movable) {
+                keys[slot] = keys[next];
+                results[slot] = results[next];
+                expiresAt[slot] = expiresAt[next];
+                filedTick[slot] = filedTick[next];
+                keys[next] = null;
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Pickup-shelf holds ordered by expiry in one min-heap. A single scheduler thread pops whatever
+// has expired, so a return surge costs O(log n) per hold and no per-item timers.
+// Cancelled or collected holds are dropped lazily when they reach the top of the heap.
+public class ReservationScheduler {
+    private PriorityQueue<Hold> expiryHeap;  // Earliest expiry first
+    private HashMap<String, Hold> activeHolds; // Key: memberId + "|" + isbn
+    private ScheduledExecutorService timer;
+
+    public ReservationScheduler() {
+        expiryHeap = new PriorityQueue<>(Comparator.comparingLong(Hold::getExpiresAt));
+        activeHolds = new HashMap<>();
+    }
+
+    private static String key(String memberId, String isbn) {
+        return memberId + "|" + isbn;
+    }
+
+    public synchronized void placeHold(Hold hold) {
+        activeHolds.put(key(hold.getMemberId(), hold.getIsbn()), hold);
+        expiryHeap.offer(hold);
+    }
+
+    public synchronized Hold findHold(String memberId, String isbn) {
+        return activeHolds.get(key(memberId, isbn));
+    }
+
+    // Remove a hold (collected at the desk or expired); its heap entry is skipped later
+    public synchronized boolean removeHold(Hold hold) {
+        return activeHolds.remove(key(hold.getMemberId(), hold.getIsbn()), hold);
+    }
+
+    // Pop every active hold whose expiry has passed
+    public synchronized List<Hold> pollExpired(long now) {
+        List<Hold> expired = new ArrayList<>();
+        while (!expiryHeap.isEmpty() && expiryHeap.peek().isExpired(now)) {
+            Hold hold = expiryHeap.poll();
+            if (removeHold(hold)) {
+                expired.add(hold);
+            }
+        }
+        return expired;
+    }
+
+    public synchronized int getActiveHoldCount() {
+        return activeHolds.size();
+    }
+
+    public synchronized List<Hold> getActiveHolds() {
+        return new ArrayList<>(activeHolds.values());
+    }
+
+    // Start the single expiry thread for a library
+    public synchronized void start(Library library, long intervalMillis) {
+        if (timer != null) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "hold-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(() -> library.processExpiredHolds(),
+                intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.shutdown();
+            timer = null;
+        }
+    }
+}
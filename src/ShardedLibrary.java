@@ -0,0 +1,184 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Sharded deployment: the catalog is partitioned across several Library shards by ISBN hash.
+// Every copy of a title lives on exactly one shard, so that shard owns the title's loans and
+// waiting queue, and a hold is always satisfied by whichever branch holds the copies.
+// Each shard only sees its own loans, so the member's overall loan limit is enforced here,
+// from a per-member count of loans open on any shard. The count follows each shard's BORROW
+// and RETURN events, so every path that opens or closes a loan (batches included) keeps it exact.
+public class ShardedLibrary {
+    private Library[] shards;
+    private ConcurrentHashMap<String, String> memberNames;        // Key: MemberID, Value: Name (router-side registry)
+    private ConcurrentHashMap<String, AtomicInteger> openLoans;   // Key: MemberID, Value: loans open across all shards
+
+    public ShardedLibrary(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+        shards = new Library[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Library();
+            shards[i].addListener(this::countLoans);
+        }
+        memberNames = new ConcurrentHashMap<>();
+        openLoans = new ConcurrentHashMap<>();
+    }
+
+    // A BORROW with a due date opened a loan (0 means the member was queued); a RETURN closed one
+    private void countLoans(CirculationEvent event) {
+        AtomicInteger count = event.getMemberId() == null ? null : openLoans.get(event.getMemberId());
+        if (count == null) {
+            return;
+        }
+        if (CirculationEvent.BORROW.equals(event.getType()) && event.getValue() != 0) {
+            count.incrementAndGet();
+        } else if (CirculationEvent.RETURN.equals(event.getType())) {
+            count.decrementAndGet();
+        }
+    }
+
+    // Router: pick the shard that owns an ISBN
+    public int shardIndexFor(String isbn) {
+        return Math.floorMod(isbn.hashCode(), shards.length);
+    }
+
+    // Private: a borrow sent straight to a shard would bypass the cross-shard loan limit
+    private Library shardFor(String isbn) {
+        return shards[shardIndexFor(isbn)];
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // Add a book to its owning shard
+    public void addBook(String isbn, String title, String author, int copies) {
+        shardFor(isbn).addBook(isbn, title, author, copies);
+    }
+
+    // Members are registered on every shard so each shard can track its own loans locally
+    public void addMember(String memberId, String name, String email) {
+        if (memberNames.putIfAbsent(memberId, name) != null) {
+            System.out.println("Member with ID " + memberId + " already exists!");
+            return;
+        }
+        openLoans.put(memberId, new AtomicInteger());
+        for (Library shard : shards) {
+            shard.addMember(memberId, name, email);
+        }
+    }
+
+    // Borrow and return are routed to the shard owning the ISBN; the waiting queue lives there too.
+    // A member's borrows are serialized on their loan counter, so two borrows on different
+    // shards cannot both take the last slot. Returns only lower the count, so they need no lock.
+    public boolean borrowBook(String memberId, String isbn) {
+        AtomicInteger count = openLoans.get(memberId);
+        if (count == null) {
+            System.out.println("Member not found!");
+            return false;
+        }
+        Library shard = shardFor(isbn);
+        synchronized (count) {
+            int limit = shard.loanLimitFor(memberId, isbn);
+            if (limit >= 0 && count.get() >= limit) {
+                System.out.println("Member cannot borrow more books (limit of " + limit + " reached across branches).");
+                return false;
+            }
+            return shard.borrowBook(memberId, isbn);
+        }
+    }
+
+    public boolean returnBook(String memberId, String isbn) {
+        if (!openLoans.containsKey(memberId)) {
+            System.out.println("Member not found!");
+            return false;
+        }
+        return shardFor(isbn).returnBook(memberId, isbn);
+    }
+
+    // Check in a drop bin that mixes branches: each barcode goes to the shard holding its loan
+    public int returnBatch(List<String> barcodes) {
+        List<List<String>> byShard = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            byShard.add(new ArrayList<>());
+        }
+        int unknown = 0;
+        for (String barcode : barcodes) {
+            int owner = -1;
+            for (int i = 0; i < shards.length && owner < 0; i++) {
+                if (shards[i].hasOpenLoan(barcode)) {
+                    owner = i;
+                }
+            }
+            if (owner < 0) {
+                unknown++;
+            } else {
+                byShard.get(owner).add(barcode);
+            }
+        }
+        int returned = 0;
+        for (int i = 0; i < shards.length; i++) {
+            if (!byShard.get(i).isEmpty()) {
+                returned += shards[i].returnBatch(byShard.get(i));
+            }
+        }
+        if (unknown > 0) {
+            System.out.println(unknown + " barcodes not matched to an open loan on any branch");
+        }
+        return returned;
+    }
+
+    // Renew a member's loans on every shard that has any; returns how many were renewed
+    public int renewAll(String memberId) {
+        if (!openLoans.containsKey(memberId)) {
+            System.out.println("Member not found!");
+            return 0;
+        }
+        int renewed = 0;
+        for (Library shard : shards) {
+            if (!shard.openLoansFor(memberId).isEmpty()) {
+                renewed += shard.renewAll(memberId);
+            }
+        }
+        return renewed;
+    }
+
+    // Loans a member has open on all shards together
+    public int getOpenLoanCount(String memberId) {
+        AtomicInteger count = openLoans.get(memberId);
+        return count == null ? 0 : count.get();
+    }
+
+    // The member's open loans across all shards (the transaction IDs are the loan barcodes)
+    public List<Transaction> getOpenLoans(String memberId) {
+        List<Transaction> result = new ArrayList<>();
+        for (Library shard : shards) {
+            result.addAll(shard.openLoansFor(memberId));
+        }
+        return result;
+    }
+
+    // Point lookup (O(1): one hash to pick the shard, one HashMap lookup inside it)
+    public Book searchBook(String isbn) {
+        return shardFor(isbn).searchBook(isbn);
+    }
+
+    // Scatter-gather title search: shards are scanned in parallel, results kept in shard order
+    public List<Book> searchByTitle(String keyword) {
+        return Arrays.stream(shards).parallel()
+                .map(shard -> shard.searchByTitle(keyword))
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    // Display all books, shard by shard
+    public void displayAllBooks() {
+        for (int i = 0; i < shards.length; i++) {
+            System.out.println("\n----- Shard " + i + " -----");
+            shards[i].displayAllBooks();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free token bucket, kept as a single "theoretical arrival time" (the GCRA form):
+// each admitted call pushes it forward by one interval, and a call is refused while it is
+// more than one burst ahead of now. One CAS per call, no timer, no lock.
+public class TokenBucket {
+    // Rate and burst together, immutable, so a reader never pairs a new interval with an old burst
+    public static final class Rate {
+        private final long intervalNanos; // Time to earn one token
+        private final long burstNanos;    // How far ahead of now the bucket may run (burst size)
+
+        public Rate(double ratePerSecond, int burst) {
+            if (ratePerSecond <= 0 || burst <= 0) {
+                throw new IllegalArgumentException("Rate and burst must be positive");
+            }
+            this.intervalNanos = (long) (1e9 / ratePerSecond);
+            this.burstNanos = intervalNanos * burst;
+        }
+    }
+
+    private volatile Rate rate;
+    private final AtomicLong arrivalTime;
+
+    public TokenBucket(double ratePerSecond, int burst) {
+        this(new Rate(ratePerSecond, burst));
+    }
+
+    public TokenBucket(Rate rate) {
+        this.rate = rate;
+        this.arrivalTime = new AtomicLong(Long.MIN_VALUE);
+    }
+
+    public Rate getRate() { return rate; }
+
+    // Takes effect on the next call; tokens already spent stay spent
+    public void setRate(Rate rate) {
+        this.rate = rate;
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    public boolean tryAcquire(long now) {
+        Rate limit = rate;
+        while (true) {
+            long current = arrivalTime.get();
+            long start = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+            long next = start + limit.intervalNanos;
+            if (next - now > limit.burstNanos) {
+                return false;
+            }
+            if (arrivalTime.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    // True when the bucket has refilled completely, so it behaves exactly like a new one
+    public boolean isFull(long now) {
+        long current = arrivalTime.get();
+        return current == Long.MIN_VALUE || current - now <= 0;
+    }
+
+    // Give back a token taken by tryAcquire when the call was refused further on
+    public void refund() {
+        long interval = rate.intervalNanos;
+        while (true) {
+            long current = arrivalTime.get();
+            if (current == Long.MIN_VALUE || arrivalTime.compareAndSet(current, current - interval)) {
+                return;
+            }
+        }
+    }
+}
@@ -9,6 +9,7 @@ public class Transaction {
     private Date dueDate;
     private Date returnDate;
     private double fine;
+    private double finePerDay; // Set from the loan policy at issue time
     private boolean isReturned;
 
     public Transaction(String memberId, String bookIsbn, Date issueDate, Date dueDate) {
@@ -19,6 +20,7 @@ public class Transaction {
         this.dueDate = dueDate;
         this.returnDate = null;
         this.fine = 0.0;
+        this.finePerDay = 5.0;
         this.isReturned = false;
     }
 
@@ -31,6 +33,7 @@ public class Transaction {
         this.dueDate = dueDate;
         this.returnDate = null;
         this.fine = 0.0;
+        this.finePerDay = 5.0;
         this.isReturned = false;
     }
 
@@ -39,7 +42,7 @@ public class Transaction {
         if (returnDate.after(dueDate)) {
             long diff = returnDate.getTime() - dueDate.getTime();
             long daysLate = diff / (24 * 60 * 60 * 1000);
-            this.fine = daysLate * 5.0; // ₹5 per day fine
+            this.fine = daysLate * finePerDay; // ₹5 per day by default
         } else {
             this.fine = 0.0; // No fine if returned on time
         }
@@ -84,7 +87,7 @@ public class Transaction {
         }
         if (isOverdue()) {
             long daysOverdue = getDaysOverdue();
-            return daysOverdue * 5.0;
+            return daysOverdue * finePerDay;
         }
         return 0.0;
     }
@@ -97,11 +100,14 @@ public class Transaction {
     public Date getDueDate() { return dueDate; }
     public Date getReturnDate() { return returnDate; }
     public double getFine() { return fine; }
+    public double getFinePerDay() { return finePerDay; }
     public boolean isReturned() { return isReturned; }
 
     // Setters (if needed)
     public void setTransactionId(String transactionId) { this.transactionId = transactionId; }
     public void setFine(double fine) { this.fine = fine; }
+    public void setFinePerDay(double finePerDay) { this.finePerDay = finePerDay; }
+    public void setDueDate(Date dueDate) { this.dueDate = dueDate; }
 
     // String representation for easy printing
     @Override
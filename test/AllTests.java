@@ -0,0 +1,26 @@
+// Runs every test class. There is no build tool, so compile and run by hand from the repo root:
+//
+//   javac -encoding UTF-8 -d out src/*.java test/*.java && java -cp out AllTests
+//
+// Each test class also has its own main. A failed check throws AssertionError and exits non-zero.
+public class AllTests {
+    public static void main(String[] args) throws Exception {
+        RequestDeduplicatorTest.main(args);
+        CoBorrowRecommenderTest.main(args);
+        BookSearchIndexTest.main(args);
+        CodecTest.main(args);
+        ColumnarExporterTest.main(args);
+        ReplayTest.main(args);
+        MappedSnapshotTest.main(args);
+        BloomFilterTest.main(args);
+        NotificationTest.main(args);
+        MemberIndexTest.main(args);
+        LoanPolicyTest.main(args);
+        ConsistencyCheckerTest.main(args);
+        TokenBucketTest.main(args);
+        ShardedLibraryTest.main(args);
+        ReplicationTest.main(args);
+        ReservationSchedulerTest.main(args);
+        System.out.println("All tests passed.");
+    }
+}
@@ -0,0 +1,54 @@
+import java.io.File;
+import java.io.IOException;
+
+// Every inserted key is reported present, before and after a save/load round trip
+public class BloomFilterTest {
+    public static void main(String[] args) throws IOException {
+        noFalseNegatives();
+        falsePositiveRateNearTarget();
+        savedFilterAnswersTheSame();
+        System.out.println("BloomFilterTest passed");
+    }
+
+    static void noFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 20000; i++) { // Past capacity too: saturation raises false positives only
+            filter.put("978" + i);
+        }
+        for (int i = 0; i < 20000; i++) {
+            Check.isTrue(filter.mightContain("978" + i), "inserted key 978" + i);
+        }
+        Check.isTrue(filter.isSaturated(), "saturated past the expected insertions");
+    }
+
+    static void falsePositiveRateNearTarget() {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put("M" + i);
+        }
+        int positives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain("X" + i)) {
+                positives++;
+            }
+        }
+        Check.isTrue(positives < 2000, "false-positive rate near 1%, got " + positives + " in 100000");
+    }
+
+    static void savedFilterAnswersTheSame() throws IOException {
+        File file = File.createTempFile("books", ".filter");
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.put("B" + i);
+        }
+        filter.save(file.getPath(), 77);
+        Check.equal(null, BloomFilter.load(file.getPath(), 78), "filter from another snapshot is ignored");
+        BloomFilter loaded = BloomFilter.load(file.getPath(), 77);
+        Check.equal(1000, loaded.getInsertions(), "insertions kept");
+        for (int i = 0; i < 5000; i++) {
+            Check.equal(filter.mightContain("B" + i), loaded.mightContain("B" + i), "same answer for B" + i);
+        }
+        Check.equal(null, BloomFilter.load(file.getPath() + ".missing", 77), "missing file");
+        file.delete();
+    }
+}
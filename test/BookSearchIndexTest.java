@@ -0,0 +1,79 @@
+import java.util.Arrays;
+import java.util.List;
+
+// Typo-tolerant search: repetitive and short words, swapped letters, and posting lists kept
+// right when books are renamed
+public class BookSearchIndexTest {
+    public static void main(String[] args) {
+        repeatedTrigramWords();
+        shortWords();
+        transpositionIsOneEdit();
+        reindexAfterRename();
+        System.out.println("BookSearchIndexTest passed");
+    }
+
+    static BookSearchIndex index(Book... books) {
+        BookSearchIndex index = new BookSearchIndex();
+        for (Book book : books) {
+            index.update(book);
+        }
+        return index;
+    }
+
+    // Too few distinct trigrams for the q-gram bound; every word is compared instead
+    static void repeatedTrigramWords() {
+        BookSearchIndex index = index(new Book("B1", "Banana Republic", "Smith", 1),
+                new Book("B2", "Hahaha", "Jones", 1), new Book("B3", "Aaaaaa", "Lee", 1));
+        Check.equal(Arrays.asList("B1"), index.search("banana"), "exact repetitive word");
+        Check.equal(Arrays.asList("B1"), index.search("bananna"), "repetitive word with a typo");
+        Check.equal(Arrays.asList("B2"), index.search("hahaha"), "hahaha");
+        Check.equal(Arrays.asList("B3"), index.search("aaaaaa"), "aaaaaa");
+        Check.equal(Arrays.asList("B3"), index.search("aaaaa"), "one letter short");
+    }
+
+    static void shortWords() {
+        BookSearchIndex index = index(new Book("B1", "It", "King", 1), new Book("B2", "The Cat", "Seuss", 1));
+        Check.equal(Arrays.asList("B1"), index.search("it"), "two letters match exactly");
+        Check.equal(0, index.search("at").size(), "two letters allow no typo");
+        Check.equal(Arrays.asList("B2"), index.search("cta"), "three letters allow one edit, even with no trigram in common");
+        Check.equal(Arrays.asList("B2"), index.search("cat"), "exact");
+    }
+
+    static void transpositionIsOneEdit() {
+        Check.equal(1, BookSearchIndex.boundedDistance("dnue", "dune", 2), "swap of neighbours");
+        Check.equal(2, BookSearchIndex.boundedDistance("dnee", "dune", 2), "swap plus substitution");
+        Check.equal(3, BookSearchIndex.boundedDistance("abcdef", "badcfe", 2), "three swaps exceed the limit");
+        BookSearchIndex index = index(new Book("B1", "Dune", "Herbert", 1), new Book("B2", "Emma", "Austen", 1));
+        Check.equal(Arrays.asList("B1"), index.search("Dnue"), "four-letter word allows one swap");
+        Check.equal(Arrays.asList("B2"), index.search("Asuten"), "swap in a longer word");
+    }
+
+    // Renaming swap-removes the book from its old words' posting lists; the book moved into
+    // its slot must be found (and renamed) correctly afterwards
+    static void reindexAfterRename() {
+        Book first = new Book("B1", "Dune", "Herbert", 1);
+        Book second = new Book("B2", "Dune Messiah", "Herbert", 1);
+        Book third = new Book("B3", "Children of Dune", "Herbert", 1);
+        BookSearchIndex index = index(first, second, third);
+        first.setTitle("Emma");
+        first.setAuthor("Austen");
+        index.update(first); // B3 moves into B1's slots
+        List<String> dune = index.search("dune");
+        Check.equal(2, dune.size(), "renamed book left the old word");
+        Check.isTrue(dune.contains("B2") && dune.contains("B3"), "other books still found");
+        Check.equal(Arrays.asList("B1"), index.search("emma"), "renamed book under its new word");
+
+        third.setTitle("Persuasion");
+        third.setAuthor("Austen");
+        index.update(third); // The moved book leaves from its new slot
+        Check.equal(Arrays.asList("B2"), index.search("dune"), "moved book removed cleanly");
+        Check.equal(Arrays.asList("B2"), index.search("herbert"), "author posting list intact");
+        List<String> austen = index.search("austen");
+        Check.equal(2, austen.size(), "both renamed books under the new author");
+        Check.equal(Arrays.asList("B3"), index.search("persuasion"), "moved book under its new title");
+        first.setTitle("Dune");
+        index.update(first);
+        List<String> back = index.search("dune");
+        Check.isTrue(back.size() == 2 && back.contains("B1") && back.contains("B2"), "renamed back");
+    }
+}
@@ -0,0 +1,63 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Incremental co-borrow counts agree with a full rebuild, including after the pair map grows
+public class CoBorrowRecommenderTest {
+    public static void main(String[] args) {
+        strongestNeighbourComesFirst();
+        rebuildMatchesIncrementalUpdates();
+        System.out.println("CoBorrowRecommenderTest passed");
+    }
+
+    static void strongestNeighbourComesFirst() {
+        CoBorrowRecommender recommender = new CoBorrowRecommender(3);
+        recommender.recordReturn("M1", "A");
+        recommender.recordReturn("M1", "B");
+        recommender.recordReturn("M2", "A");
+        recommender.recordReturn("M2", "B");
+        recommender.recordReturn("M2", "C");
+        Check.equal(List.of("B", "C"), recommender.similarTitles("A"), "neighbours of A by shared borrowers");
+        Check.equal(List.of(), recommender.similarTitles("unknown"), "unknown title");
+    }
+
+    static void rebuildMatchesIncrementalUpdates() {
+        CoBorrowRecommender live = new CoBorrowRecommender(5);
+        List<CirculationEvent> history = new ArrayList<>();
+        long sequence = 0;
+        for (int member = 0; member < 40; member++) {
+            // A stride per member group, plus a few popular titles, so counts differ and ties occur
+            for (int title = member % 7; title < 60; title += 7) {
+                sequence = returned(live, history, sequence, member, "T" + title);
+            }
+            for (int popular = 0; popular <= member % 4; popular++) {
+                sequence = returned(live, history, sequence, member, "P" + popular);
+            }
+        }
+        CoBorrowRecommender rebuilt = new CoBorrowRecommender(5);
+        rebuilt.rebuild(history);
+        List<String> titles = new ArrayList<>();
+        for (int title = 0; title < 60; title++) {
+            titles.add("T" + title);
+        }
+        for (int popular = 0; popular < 4; popular++) {
+            titles.add("P" + popular);
+        }
+        for (String title : titles) {
+            List<String> neighbours = live.similarTitles(title);
+            Check.equal(neighbours, rebuilt.similarTitles(title), "ranked neighbours of " + title);
+            for (String neighbour : neighbours) {
+                Check.equal(live.sharedBorrowers(title, neighbour), rebuilt.sharedBorrowers(title, neighbour),
+                        "shared borrowers of " + title + " and " + neighbour);
+            }
+        }
+        Check.equal(List.of("P1", "P2", "P3"), live.similarTitles("P0").subList(0, 3), "popular titles ranked by count");
+        Check.equal(10, live.sharedBorrowers("P0", "P3"), "members 3, 7, ..., 39 returned both");
+    }
+
+    private static long returned(CoBorrowRecommender live, List<CirculationEvent> history, long sequence,
+                                 int member, String isbn) {
+        live.recordReturn("M" + member, isbn);
+        history.add(new CirculationEvent(sequence + 1, CirculationEvent.RETURN, 0, "M" + member, isbn, null, null, 0));
+        return sequence + 1;
+    }
+}
@@ -0,0 +1,117 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+// Round trips through the shared varint codec, the circulation log and the columnar files
+public class CodecTest {
+    public static void main(String[] args) throws IOException {
+        varLongRoundTrip();
+        eventLogRoundTrip();
+        eventLogAppendsAfterReopen();
+        columnarRoundTrip();
+        System.out.println("CodecTest passed");
+    }
+
+    static void varLongRoundTrip() throws IOException {
+        long[] values = { 0, 1, -1, 63, -64, 64, 127, 128, 300, -300, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                Long.MAX_VALUE, Long.MIN_VALUE };
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (long value : values) {
+            VarInt.writeVarLong(buffer, VarInt.zigZag(value));
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+        for (long value : values) {
+            Check.equal(value, VarInt.unZigZag(VarInt.readVarLong(in)), "zig-zag varint of " + value);
+        }
+        Check.equal(0, in.available(), "no trailing bytes");
+        ByteArrayOutputStream small = new ByteArrayOutputStream();
+        VarInt.writeVarLong(small, VarInt.zigZag(-1));
+        Check.equal(1, small.size(), "small negative numbers take one byte");
+    }
+
+    static void eventLogRoundTrip() throws IOException {
+        File file = File.createTempFile("circulation", ".log");
+        file.delete();
+        CirculationEvent[] events = {
+                new CirculationEvent(1, CirculationEvent.ADD_BOOK, 1000, null, "978-1", "Dune", "Herbert", 3),
+                new CirculationEvent(2, CirculationEvent.BORROW, 5000, "M1", "978-1", null, null, 5, 99000, null),
+                new CirculationEvent(3, CirculationEvent.MEMBER_UPDATED, 4000, "M1", null, "Ann", "ann@x.org", 7,
+                        3, "STUDENT\t555"),
+                new CirculationEvent(4, CirculationEvent.RETURN, 4000, "M1", "978-1", null, null, 0, -5, null)
+        };
+        try (EventLog log = new EventLog(file.getPath())) {
+            for (CirculationEvent event : events) {
+                log.onEvent(event);
+            }
+        }
+        List<CirculationEvent> read = EventLog.readAll(file.getPath());
+        Check.equal(events.length, read.size(), "event count");
+        for (int i = 0; i < events.length; i++) {
+            Check.equal(describe(events[i]), describe(read.get(i)), "event " + i);
+        }
+        file.delete();
+    }
+
+    static void eventLogAppendsAfterReopen() throws IOException {
+        File file = File.createTempFile("circulation", ".log");
+        file.delete();
+        try (EventLog log = new EventLog(file.getPath())) {
+            log.onEvent(new CirculationEvent(1, CirculationEvent.ADD_BOOK, 1000, null, "978-1", "Dune", "Herbert", 3));
+        }
+        try (EventLog log = new EventLog(file.getPath())) {
+            Check.equal(1L, log.getLastSequence(), "last sequence restored on reopen");
+            log.onEvent(new CirculationEvent(2, CirculationEvent.ADD_BOOK, 2000, null, "978-2", "Emma", "Herbert", 1));
+        }
+        List<CirculationEvent> read = EventLog.readAll(file.getPath());
+        Check.equal("Emma", read.get(1).getName(), "appended record uses the restored dictionary and deltas");
+        Check.equal("Herbert", read.get(1).getDetail(), "dictionary reference written before the reopen");
+        int[] seen = { 0 };
+        EventLog.scan(file.getPath(), event -> ++seen[0] < 1);
+        Check.equal(1, seen[0], "scan stops when the visitor returns false");
+        file.delete();
+    }
+
+    static void columnarRoundTrip() throws IOException {
+        File file = File.createTempFile("books", ".col");
+        String[] names = { "id", "price", "active", "title" };
+        byte[] types = { ColumnarWriter.LONG, ColumnarWriter.DOUBLE, ColumnarWriter.BOOLEAN, ColumnarWriter.STRING };
+        long[] ids = { 5, -3, Long.MAX_VALUE, Long.MIN_VALUE, 0, 17, 18, 9, 10, 11 };
+        try (ColumnarWriter writer = new ColumnarWriter(file.getPath(), names, types, 4)) {
+            for (int i = 0; i < ids.length; i++) {
+                writer.putLong(0, ids[i]);
+                writer.putDouble(1, i * 1.5);
+                writer.putBoolean(2, i % 3 == 0);
+                writer.putString(3, i == 2 ? null : "T" + (i % 4));
+                writer.endRow();
+            }
+        }
+        try (ColumnarReader reader = new ColumnarReader(file.getPath())) {
+            Check.equal((long) ids.length, reader.getRowCount(), "row count");
+            Check.equal(3, reader.getRowGroupCount(), "row groups of 4, 4 and 2");
+            int row = 0;
+            for (int group = 0; group < reader.getRowGroupCount(); group++) {
+                long[] readIds = reader.readLongs(group, 0);
+                double[] prices = reader.readDoubles(group, 1);
+                boolean[] active = reader.readBooleans(group, 2);
+                String[] titles = reader.readStrings(group, 3);
+                for (int i = 0; i < readIds.length; i++, row++) {
+                    Check.equal(ids[row], readIds[i], "id of row " + row);
+                    Check.equal(row * 1.5, prices[i], "price of row " + row);
+                    Check.equal(row % 3 == 0, active[i], "active of row " + row);
+                    Check.equal(row == 2 ? null : "T" + (row % 4), titles[i], "title of row " + row);
+                }
+            }
+            Check.equal(ids.length, row, "rows read");
+        }
+        file.delete();
+    }
+
+    private static String describe(CirculationEvent e) {
+        return e.getSequence() + "|" + e.getType() + "|" + e.getTimestamp() + "|" + e.getMemberId() + "|" +
+                e.getIsbn() + "|" + e.getName() + "|" + e.getDetail() + "|" + e.getCopies() + "|" +
+                e.getValue() + "|" + e.getExtra();
+    }
+}
@@ -0,0 +1,99 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+// Exports: rows of a memory-mapped catalog come from the file without loading it, loaded records
+// export their live state, and a failed export leaves the previous file in place
+public class ColumnarExporterTest {
+    public static void main(String[] args) throws IOException {
+        mappedCatalogIsNotLoaded();
+        failedExportKeepsThePreviousFile();
+        System.out.println("ColumnarExporterTest passed");
+    }
+
+    static void mappedCatalogIsNotLoaded() throws IOException {
+        File books = File.createTempFile("books", ".dat");
+        File members = File.createTempFile("members", ".dat");
+        File loans = File.createTempFile("loans", ".dat");
+        Library saved = new Library();
+        saved.setQuiet(true);
+        for (int i = 0; i < 10; i++) {
+            saved.addBook("B" + i, "Title " + i, "Author", 2);
+            saved.addMember("M" + i, "Member " + i, "m" + i + "@x.org");
+        }
+        saved.borrowBook("M1", "B1");
+        MappedCatalogStore.save(saved, books.getPath(), members.getPath(), loans.getPath());
+
+        MappedCatalogStore store = new MappedCatalogStore(books.getPath(), members.getPath());
+        Library library = new Library(store, new InMemoryLoanStore());
+        library.setQuiet(true);
+        store.restoreCirculation(library, loans.getPath());
+        library.borrowBook("M2", "B2"); // Loads B2 and M2 and changes them
+        library.addBook("N1", "New", "Author", 1);
+        int loaded = store.loadedBookCount();
+
+        File dir = Files.createTempDirectory("export").toFile();
+        new ColumnarExporter(library).exportAll(dir.getPath());
+        Check.equal(loaded, store.loadedBookCount(), "export loads no books");
+
+        Map<String, Long> available = new HashMap<>();
+        try (ColumnarReader reader = new ColumnarReader(new File(dir, "books.lmc").getPath())) {
+            Check.equal(11L, reader.getRowCount(), "file books plus the added one");
+            int isbn = reader.columnIndex("isbn");
+            int copies = reader.columnIndex("available_copies");
+            for (int group = 0; group < reader.getRowGroupCount(); group++) {
+                String[] isbns = reader.readStrings(group, isbn);
+                long[] counts = reader.readLongs(group, copies);
+                for (int i = 0; i < isbns.length; i++) {
+                    available.put(isbns[i], counts[i]);
+                }
+            }
+        }
+        Check.equal(1L, available.get("B1"), "unloaded record exported from the file");
+        Check.equal(1L, available.get("B2"), "loaded record exported with its live state");
+        Check.equal(2L, available.get("B3"), "untouched record");
+        Check.equal(1L, available.get("N1"), "book added after the snapshot");
+        try (ColumnarReader reader = new ColumnarReader(new File(dir, "members.lmc").getPath())) {
+            Check.equal(10L, reader.getRowCount(), "every member once");
+        }
+        Check.isTrue(!new File(dir, "books.lmc.tmp").exists(), "temporary file renamed into place");
+
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+        for (File file : new File[] { books, members, loans }) {
+            new File(file.getPath() + ".filter").delete();
+            file.delete();
+        }
+    }
+
+    static void failedExportKeepsThePreviousFile() throws IOException {
+        Library library = new Library();
+        library.setQuiet(true);
+        library.addBook("B1", "Dune", "Herbert", 1);
+        File file = File.createTempFile("books", ".lmc");
+        ColumnarExporter exporter = new ColumnarExporter(library);
+        exporter.exportBooks(file.getPath());
+        long size = file.length();
+
+        library.addBook("B2", "Emma", "Austen", 1);
+        File blocker = new File(file.getPath() + ".tmp");
+        blocker.mkdir(); // The temporary file cannot be created
+        boolean failed = false;
+        try {
+            exporter.exportBooks(file.getPath());
+        } catch (IOException e) {
+            failed = true;
+        }
+        blocker.delete();
+        Check.isTrue(failed, "export failed");
+        Check.equal(size, file.length(), "previous export untouched");
+        try (ColumnarReader reader = new ColumnarReader(file.getPath())) {
+            Check.equal(1L, reader.getRowCount(), "previous export still readable");
+        }
+        file.delete();
+    }
+}
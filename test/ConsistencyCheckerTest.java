@@ -0,0 +1,77 @@
+// The checker finds drift, repairs it, and its incremental run covers only changed records;
+// it stays silent for a quiet library and repairs changed records on its background schedule
+public class ConsistencyCheckerTest {
+    public static void main(String[] args) {
+        findsAndRepairsDrift();
+        changedRunSeesOnlyTouchedRecords();
+        quietLibraryGetsNoReport();
+        scheduledRunRepairsChangedRecords();
+        System.out.println("ConsistencyCheckerTest passed");
+    }
+
+    static Library library() {
+        Library library = new Library();
+        library.setQuiet(true);
+        library.addBook("B1", "Dune", "Herbert", 2);
+        library.addBook("B2", "Emma", "Austen", 1);
+        library.addMember("M1", "Ann", "ann@x.org");
+        library.borrowBook("M1", "B1");
+        return library;
+    }
+
+    static void findsAndRepairsDrift() {
+        Library library = library();
+        ConsistencyChecker checker = new ConsistencyChecker(library);
+        Check.equal(0, checker.check().size(), "clean library");
+        library.searchBook("B1").resetCopyCounts(2, 0); // Counter drift: the loaned copy looks available
+        Check.equal(1, checker.check().size(), "copy count mismatch found");
+        Check.equal(1, checker.checkAndRepair(), "repaired");
+        Check.equal(1, library.searchBook("B1").getAvailableCopies(), "recounted from the borrower list");
+        Check.equal(0, checker.check().size(), "clean after repair");
+    }
+
+    static void changedRunSeesOnlyTouchedRecords() {
+        Library library = library();
+        ConsistencyChecker checker = new ConsistencyChecker(library);
+        library.searchBook("B2").resetCopyCounts(0, 0); // Drift with no event behind it
+        Check.equal(0, checker.checkChanged().size(), "untouched book is not rechecked");
+        library.returnBook("M1", "B1");
+        library.searchBook("B1").resetCopyCounts(1, 0);
+        Check.equal(1, checker.checkChanged().size(), "book touched by the return is rechecked");
+        Check.equal(0, checker.checkChanged().size(), "nothing changed since the last run");
+        Check.equal(2, checker.check().size(), "the full check still sees both");
+    }
+
+    static void quietLibraryGetsNoReport() {
+        Library library = library();
+        ConsistencyChecker checker = new ConsistencyChecker(library);
+        java.io.PrintStream out = System.out;
+        java.io.ByteArrayOutputStream captured = new java.io.ByteArrayOutputStream();
+        System.setOut(new java.io.PrintStream(captured));
+        try {
+            checker.check();
+        } finally {
+            System.setOut(out);
+        }
+        Check.equal(0, captured.size(), "no report printed");
+    }
+
+    static void scheduledRunRepairsChangedRecords() {
+        Library library = library();
+        ConsistencyChecker checker = new ConsistencyChecker(library);
+        library.returnBook("M1", "B1");
+        library.searchBook("B1").resetCopyCounts(1, 0); // Drift on a book the return touched
+        checker.start(10);
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (library.searchBook("B1").getAvailableCopies() != 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            checker.stop();
+        }
+        Check.equal(2, library.searchBook("B1").getAvailableCopies(), "recounted by the background run");
+    }
+}
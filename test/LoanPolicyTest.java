@@ -0,0 +1,71 @@
+import java.util.Arrays;
+
+// The loan policy decides limits without rewriting the member's stored limit, and a tighter
+// individual limit on the member still applies; withdrawn books are not lent at all
+public class LoanPolicyTest {
+    public static void main(String[] args) {
+        policyLimitAppliesWithoutMutatingMember();
+        notLoanableItemIsRefused();
+        memberLimitBelowPolicyIsEnforced();
+        withdrawnBookIsRefused();
+        System.out.println("LoanPolicyTest passed");
+    }
+
+    static void policyLimitAppliesWithoutMutatingMember() {
+        Library library = new Library();
+        library.setQuiet(true);
+        library.getPolicies().install(LoanPolicy.compile(Arrays.asList("* * * 2 14 5.0")));
+        for (int i = 1; i <= 3; i++) {
+            library.addBook("B" + i, "Title " + i, "Author", 1);
+        }
+        library.addMember("M1", "Ann", "ann@x.org");
+        Check.isTrue(library.borrowBook("M1", "B1"), "first loan");
+        Check.isTrue(library.borrowBook("M1", "B2"), "second loan");
+        Check.isTrue(!library.borrowBook("M1", "B3"), "third loan refused at the policy limit");
+        Check.equal(5, library.searchMember("M1").getMaxBooksAllowed(), "member's stored limit untouched");
+        Check.equal(1, library.findMembersAtLimit().size(), "at limit under the policy");
+        library.getPolicies().install(LoanPolicy.compile(Arrays.asList("* * * 4 14 5.0")));
+        Check.equal(0, library.findMembersAtLimit().size(), "index follows a policy reload");
+        Check.isTrue(library.borrowBook("M1", "B3"), "allowed under the new policy");
+    }
+
+    static void notLoanableItemIsRefused() {
+        Library library = new Library();
+        library.setQuiet(true);
+        library.getPolicies().install(LoanPolicy.compile(Arrays.asList("* * * 5 14 5.0", "* Reference * 0 0 0")));
+        library.addBook("R1", "Atlas", "Cartographer", 1);
+        library.bulkUpdate(book -> true, book -> book.setGenre("Reference"));
+        library.addMember("M1", "Ann", "ann@x.org");
+        Check.isTrue(!library.borrowBook("M1", "R1"), "reference item not loanable");
+        Check.equal(1, library.searchBook("R1").getAvailableCopies(), "copy stays on the shelf");
+    }
+
+    static void memberLimitBelowPolicyIsEnforced() {
+        Library library = new Library();
+        library.setQuiet(true);
+        library.getPolicies().install(LoanPolicy.compile(Arrays.asList("* * * 5 14 5.0")));
+        library.addBook("B1", "Title 1", "Author", 1);
+        library.addBook("B2", "Title 2", "Author", 1);
+        library.addMember("M1", "Ann", "ann@x.org");
+        library.updateMember("M1", member -> member.setMaxBooksAllowed(1)); // Individually restricted
+        Check.isTrue(library.borrowBook("M1", "B1"), "first loan");
+        Check.isTrue(!library.borrowBook("M1", "B2"), "refused at the member's own limit under a looser policy");
+        Check.equal(1, library.loanLimitFor("M1", "B2"), "effective limit reported to the sharded front");
+        Check.equal(1, library.findMembersAtLimit().size(), "at limit by the member's own limit");
+    }
+
+    static void withdrawnBookIsRefused() {
+        Library library = new Library();
+        library.setQuiet(true);
+        library.addBook("B1", "Dune", "Herbert", 1);
+        library.addBook("B2", "Emma", "Austen", 1);
+        library.addMember("M1", "Ann", "ann@x.org");
+        library.addMember("M2", "Bob", "bob@x.org");
+        library.borrowBook("M1", "B2");
+        library.bulkUpdate(book -> true, book -> book.setActive(false)); // Collection withdrawn
+        Check.isTrue(!library.borrowBook("M1", "B1"), "inactive book not lent");
+        Check.equal(1, library.searchBook("B1").getAvailableCopies(), "copy stays on the shelf");
+        Check.isTrue(!library.borrowBook("M2", "B2"), "inactive book refused");
+        Check.isTrue(!library.searchBook("B2").isInQueue("M2"), "and not queued for either");
+    }
+}
@@ -0,0 +1,95 @@
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Snapshot files: keyed lookups, full scans and the event watermark in the header
+public class MappedSnapshotTest {
+    public static void main(String[] args) throws IOException {
+        lookupsAndWatermark();
+        firstFormatIsRefused();
+        restartFromSnapshotAndLogTail();
+        System.out.println("MappedSnapshotTest passed");
+    }
+
+    static void lookupsAndWatermark() throws IOException {
+        File file = File.createTempFile("books", ".dat");
+        List<String[]> rows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            rows.add(new String[] { "978" + i, "Title " + i, "" });
+        }
+        MappedSnapshot.write(file.getPath(), rows, 4242);
+        MappedSnapshot snapshot = MappedSnapshot.open(file.getPath());
+        Check.equal(100, snapshot.getRecordCount(), "record count");
+        Check.equal(4242L, snapshot.getSequence(), "watermark");
+        Check.equal("Title 57", snapshot.read("97857")[1], "keyed lookup");
+        Check.equal("", snapshot.read("97857")[2], "empty field");
+        Check.equal(null, snapshot.read("nope"), "missing key");
+        int[] keys = { 0 };
+        snapshot.forEachKey(key -> keys[0]++);
+        Check.equal(100, keys[0], "every key visited");
+        Check.isTrue(!new File(file.getPath() + ".tmp").exists(), "temporary file renamed into place");
+        file.delete();
+    }
+
+    // Save mid-day, keep circulating, then restart from the snapshot plus the log after its watermark
+    static void restartFromSnapshotAndLogTail() throws IOException {
+        File log = File.createTempFile("circulation", ".log");
+        log.delete();
+        File books = File.createTempFile("books", ".dat");
+        File members = File.createTempFile("members", ".dat");
+        File loans = File.createTempFile("loans", ".dat");
+        long[] clock = { 1_000_000L };
+        Library live = new Library();
+        live.setQuiet(true);
+        live.setClock(() -> clock[0]);
+        EventLog eventLog = new EventLog(log.getPath());
+        live.addListener(eventLog);
+        live.addBook("B1", "Dune", "Herbert", 1);
+        live.addBook("B2", "Emma", "Austen", 2);
+        live.addMember("M1", "Ann", "ann@x.org");
+        live.addMember("M2", "Bob", "bob@x.org");
+        live.updateMember("M2", member -> member.setPriorityTier(Member.TIER_FACULTY));
+        live.borrowBook("M1", "B1");
+        live.borrowBook("M2", "B1"); // Queued
+        live.borrowBook("M1", "B2");
+        MappedCatalogStore.save(live, books.getPath(), members.getPath(), loans.getPath());
+        clock[0] += 60_000L;
+        live.returnBook("M1", "B1"); // Held for M2, after the snapshot
+        live.borrowBook("M2", "B2");
+        eventLog.close();
+
+        MappedCatalogStore store = new MappedCatalogStore(books.getPath(), members.getPath());
+        Library restarted = new Library(store, new InMemoryLoanStore());
+        store.restoreCirculation(restarted, loans.getPath());
+        ReplayEngine.replayInto(restarted, log.getPath(), store.getSnapshotSequence());
+        Check.equal(8L, store.getSnapshotSequence(), "watermark at the save");
+        Check.isTrue(store.savedBookFilter() != null && store.savedMemberFilter() != null,
+                "key filters read from the snapshot instead of rebuilt");
+        Check.equal(ReplayTest.state(live), ReplayTest.state(restarted), "state after restart");
+        Check.equal(live.getEventSequence(), restarted.getEventSequence(), "numbering continues");
+        for (File file : new File[] { log, books, members, loans }) {
+            file.delete();
+            new File(file.getPath() + ".filter").delete();
+        }
+    }
+
+    static void firstFormatIsRefused() throws IOException {
+        File file = File.createTempFile("books", ".dat");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(0x4C4D5331);
+            out.writeInt(0);
+            out.writeInt(2);
+            out.writeLong(0);
+        }
+        try {
+            MappedSnapshot.open(file.getPath());
+            throw new AssertionError("snapshot without a watermark was accepted");
+        } catch (IOException e) {
+            Check.isTrue(e.getMessage().contains("watermark"), "explains why: " + e.getMessage());
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Member indexes: shared email addresses and clock-driven overdue status
+public class MemberIndexTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    public static void main(String[] args) {
+        sharedEmailKeepsBothMembers();
+        sharedEmailOrderSurvivesLoans();
+        overdueFollowsTheClockAndReturns();
+        System.out.println("MemberIndexTest passed");
+    }
+
+    static void sharedEmailKeepsBothMembers() {
+        Library library = new Library();
+        library.setQuiet(true);
+        library.addMember("M1", "Ann", "family@x.org");
+        library.addMember("M2", "Bob", "Family@X.org ");
+        Check.equal(2, library.searchMembersByEmail("family@x.org").size(), "both members indexed");
+        Check.equal("M1", library.searchMemberByEmail("family@x.org").getMemberId(), "earliest registered first");
+        library.updateMember("M1", member -> member.setEmail("ann@x.org"));
+        Check.equal("M2", library.searchMemberByEmail("family@x.org").getMemberId(), "M2 keeps the shared address");
+        Check.equal("M1", library.searchMemberByEmail("ann@x.org").getMemberId(), "M1 found by the new address");
+    }
+
+    // Loans re-index the member; that must not move them behind others sharing the address
+    static void sharedEmailOrderSurvivesLoans() {
+        Library library = new Library();
+        library.setQuiet(true);
+        library.addBook("B1", "Dune", "Herbert", 1);
+        library.addMember("M1", "Ann", "family@x.org");
+        library.addMember("M2", "Bob", "family@x.org");
+        library.addMember("M3", "Cy", "family@x.org");
+        library.borrowBook("M1", "B1");
+        Check.equal("M1", library.searchMemberByEmail("family@x.org").getMemberId(), "still first after borrowing");
+        library.returnBook("M1", "B1");
+        library.updateMember("M1", member -> member.setEmail("ann@x.org"));
+        library.updateMember("M1", member -> member.setEmail("family@x.org"));
+        Check.equal(List.of("M1", "M2", "M3"), ids(library.searchMembersByEmail("family@x.org")),
+                "registration order after leaving and rejoining the address");
+    }
+
+    private static List<String> ids(List<Member> members) {
+        List<String> result = new ArrayList<>();
+        for (Member member : members) {
+            result.add(member.getMemberId());
+        }
+        return result;
+    }
+
+    static void overdueFollowsTheClockAndReturns() {
+        long[] clock = { 1_000_000L };
+        Library library = new Library();
+        library.setQuiet(true);
+        library.setClock(() -> clock[0]);
+        library.addBook("B1", "Dune", "Herbert", 1);
+        library.addMember("M1", "Ann", "ann@x.org");
+        library.borrowBook("M1", "B1");
+        Check.equal(0, library.findActiveMembersWithOverdue().size(), "not overdue on the day of issue");
+        clock[0] += 365 * DAY;
+        Check.equal(1, library.findActiveMembersWithOverdue().size(), "overdue once the clock passes the due date");
+        library.returnBook("M1", "B1");
+        Check.equal(0, library.findActiveMembersWithOverdue().size(), "not overdue after the return");
+    }
+}
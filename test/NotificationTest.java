@@ -0,0 +1,135 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+// Outbox compaction and recovery, hold notices made durable before the event returns, overdue-notice
+// bookkeeping tied to open loans and kept across restarts, and failed writes reported for retry
+public class NotificationTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    public static void main(String[] args) throws IOException {
+        outboxCompactsDeliveredEntries();
+        overdueNoticeForgottenOnReturn();
+        holdNoticeDurableWhenEventReturns();
+        overdueNoticesSurviveRestart();
+        failedDeliveryIsReported();
+        System.out.println("NotificationTest passed");
+    }
+
+    static void outboxCompactsDeliveredEntries() throws IOException {
+        File file = File.createTempFile("outbox", ".log");
+        NotificationOutbox outbox = new NotificationOutbox(file.getPath());
+        List<Notification> delivered = new ArrayList<>();
+        for (int i = 0; i < 6000; i++) {
+            Notification notification = new Notification("n" + i, Notification.OVERDUE, "M" + i, "m@x.org", "late");
+            outbox.append(notification);
+            if (i >= 3) {
+                delivered.add(notification);
+            }
+        }
+        outbox.markDone(delivered);
+        outbox.close();
+        Check.equal(3, Files.readAllLines(file.toPath()).size(), "only pending entries left in the file");
+        NotificationOutbox recovered = new NotificationOutbox(file.getPath());
+        Check.equal(3, recovered.size(), "pending entries recovered after compaction");
+        recovered.close();
+        file.delete();
+    }
+
+    static void overdueNoticeForgottenOnReturn() throws IOException {
+        File outboxFile = File.createTempFile("outbox", ".log");
+        File mail = File.createTempFile("mail", ".txt");
+        long[] clock = { 1_000_000L };
+        Library library = new Library();
+        library.setQuiet(true);
+        library.setClock(() -> clock[0]);
+        library.addBook("B1", "Dune", "Herbert", 1);
+        library.addMember("M1", "Ann", "ann@x.org");
+        NotificationService service = new NotificationService(library, new NotificationOutbox(outboxFile.getPath()),
+                new FileNotificationChannel(mail.getPath()), 1, 0);
+        library.borrowBook("M1", "B1");
+        service.scanOverdue(clock[0] + 365 * DAY);
+        Check.equal(1, service.getOverdueNoticeCount(), "overdue notice remembered");
+        Check.equal(1, service.getPendingCount(), "notice queued");
+        service.scanOverdue(clock[0] + 365 * DAY + 1000);
+        Check.equal(1, service.getPendingCount(), "no second notice the same day");
+        library.returnBook("M1", "B1");
+        Check.equal(0, service.getOverdueNoticeCount(), "forgotten when the loan closes");
+        service.stop();
+        outboxFile.delete();
+        mail.delete();
+    }
+
+    static void holdNoticeDurableWhenEventReturns() throws IOException {
+        File outboxFile = File.createTempFile("outbox", ".log");
+        File mail = File.createTempFile("mail", ".txt");
+        Library library = new Library();
+        library.setQuiet(true);
+        library.addBook("B1", "Dune", "Herbert", 1);
+        library.addMember("M1", "Ann", "ann@x.org");
+        library.addMember("M2", "Bob", "bob@x.org");
+        NotificationService service = new NotificationService(library, new NotificationOutbox(outboxFile.getPath()),
+                new FileNotificationChannel(mail.getPath()), 1, 0);
+        library.borrowBook("M1", "B1");
+        library.borrowBook("M2", "B1"); // Queued
+        library.returnBook("M1", "B1"); // Held for M2
+        List<String> lines = Files.readAllLines(outboxFile.toPath());
+        Check.equal(1, lines.size(), "hold notice on disk when the return completes");
+        Check.isTrue(lines.get(0).startsWith("PENDING") && lines.get(0).contains("bob@x.org"), "pending hold notice");
+        service.stop();
+        outboxFile.delete();
+        mail.delete();
+    }
+
+    static void overdueNoticesSurviveRestart() throws IOException {
+        File outboxFile = File.createTempFile("outbox", ".log");
+        File mail = File.createTempFile("mail", ".txt");
+        long[] clock = { 1_000_000L };
+        Library library = new Library();
+        library.setQuiet(true);
+        library.setClock(() -> clock[0]);
+        library.addBook("B1", "Dune", "Herbert", 1);
+        library.addMember("M1", "Ann", "ann@x.org");
+        library.borrowBook("M1", "B1");
+        NotificationOutbox outbox = new NotificationOutbox(outboxFile.getPath());
+        NotificationService service = new NotificationService(library, outbox,
+                new FileNotificationChannel(mail.getPath()), 1, 0);
+        long late = clock[0] + 365 * DAY;
+        service.scanOverdue(late);
+        outbox.markDone(outbox.pendingExcept(new HashSet<>())); // Delivered before the restart
+        service.stop();
+        outbox.close();
+
+        NotificationOutbox reopened = new NotificationOutbox(outboxFile.getPath());
+        NotificationService restarted = new NotificationService(library, reopened,
+                new FileNotificationChannel(mail.getPath()), 1, 0);
+        Check.equal(1, restarted.getOverdueNoticeCount(), "notice time recovered");
+        restarted.scanOverdue(late + 1000);
+        Check.equal(0, restarted.getPendingCount(), "no repeat notice after a restart");
+        restarted.scanOverdue(late + DAY);
+        Check.equal(1, restarted.getPendingCount(), "next notice a day later");
+        restarted.stop();
+        reopened.close();
+        outboxFile.delete();
+        mail.delete();
+    }
+
+    static void failedDeliveryIsReported() {
+        File full = new File("/dev/full"); // Every write fails with "no space left"
+        if (!full.exists()) {
+            return;
+        }
+        FileNotificationChannel channel = new FileNotificationChannel(full.getPath());
+        List<Notification> batch = List.of(new Notification("n1", Notification.OVERDUE, "M1", "m@x.org", "late"));
+        boolean failed = false;
+        try {
+            channel.send("m@x.org", batch);
+        } catch (IOException e) {
+            failed = true;
+        }
+        Check.isTrue(failed, "a failed write throws, so the batch is retried instead of marked done");
+    }
+}
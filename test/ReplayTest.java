@@ -0,0 +1,193 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+// Replaying the circulation log reproduces the live library's state
+public class ReplayTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    public static void main(String[] args) throws IOException {
+        replayMatchesLiveState();
+        replayUntilStopsAtCutoff();
+        startupReplayContinuesNumbering();
+        startupReplayRidesOnTheOpeningScan();
+        replayedLoansKeepTheirBarcodes();
+        bookUpdateBelowLoansIsRefused();
+        System.out.println("ReplayTest passed");
+    }
+
+    // A short day at the desk: queues, holds collected and expired, renewals, member and catalog changes
+    static Library runDesk(String logPath, long[] clock) throws IOException {
+        Library library = new Library();
+        library.setQuiet(true);
+        library.setClock(() -> clock[0]);
+        EventLog log = new EventLog(logPath);
+        library.addListener(log);
+        clock[0] = 1_000_000L;
+        library.addBook("B1", "Dune", "Herbert", 1);
+        library.addBook("B2", "Emma", "Austen", 2);
+        library.addMember("M1", "Ann", "ann@x.org");
+        library.addMember("M2", "Bob", "bob@x.org");
+        library.addMember("M3", "Cy", "cy@x.org");
+        clock[0] += DAY;
+        library.borrowBook("M1", "B1");
+        library.borrowBook("M2", "B1"); // Queued
+        library.borrowBook("M3", "B1"); // Queued
+        library.borrowBook("M2", "B2");
+        library.updateMember("M3", member -> member.setPriorityTier(Member.TIER_ACCESSIBILITY));
+        clock[0] += DAY;
+        library.returnBook("M1", "B1");  // Held for M3 (higher tier)
+        library.renewLoan("M2", "B2");
+        clock[0] += 5 * DAY;
+        library.processExpiredHolds(clock[0]); // M3 never came; the copy goes to M2
+        clock[0] += DAY;
+        library.borrowBook("M2", "B1");  // Collects the hold
+        library.updateMember("M1", member -> member.setActive(false));
+        library.bulkUpdate(book -> book.getAuthor().equals("Austen"), book -> {
+            book.setTitle("Emma (Annotated)");
+            book.setGenre("Classics");
+            book.addCopies(1);
+            book.setActive(false);
+        });
+        log.close();
+        return library;
+    }
+
+    static void replayMatchesLiveState() throws IOException {
+        File file = tempLog();
+        long[] clock = { 0 };
+        Library live = runDesk(file.getPath(), clock);
+        Library replayed = new ReplayEngine().replay(file.getPath()).getLibrary();
+        Check.equal(state(live), state(replayed), "replayed state");
+        Check.equal("B2", replayed.fuzzySearch("annotated").get(0).getIsbn(), "replayed title is searchable");
+        file.delete();
+    }
+
+    static void replayUntilStopsAtCutoff() throws IOException {
+        File file = tempLog();
+        runDesk(file.getPath(), new long[1]);
+        ReplayResult result = new ReplayEngine().replayUntil(file.getPath(), 1_000_000L + DAY);
+        Check.equal(10L, result.getEventsApplied(), "events up to the end of day one");
+        Check.isTrue(result.getLibrary().searchBook("B1").isInQueue("M2"), "queue as of the cutoff");
+        file.delete();
+    }
+
+    static void startupReplayContinuesNumbering() throws IOException {
+        File file = tempLog();
+        Library live = runDesk(file.getPath(), new long[1]);
+        Library restarted = new Library();
+        restarted.setQuiet(true);
+        LongSupplier clock = () -> 42L;
+        restarted.setClock(clock);
+        EventLog log = new EventLog(file.getPath());
+        long last = ReplayEngine.replayInto(restarted, file.getPath(), 0);
+        Check.equal(log.getLastSequence(), last, "replayed through the last logged event");
+        Check.isTrue(restarted.isQuiet(), "caller's quiet setting kept");
+        Check.isTrue(restarted.getClock() == clock, "caller's clock put back");
+        Check.equal(live.getEventSequence(), restarted.getEventSequence(), "numbering continues after the log");
+        Check.equal(state(live), state(restarted), "state after restart");
+        log.close();
+        file.delete();
+    }
+
+    // Main's startup: EventLog's opening scan drives the replay and collects the returns
+    static void startupReplayRidesOnTheOpeningScan() throws IOException {
+        File file = tempLog();
+        Library live = runDesk(file.getPath(), new long[1]);
+        Library restarted = new Library();
+        ReplayEngine.Catchup catchup = new ReplayEngine.Catchup(restarted, 0);
+        List<CirculationEvent> returns = new ArrayList<>();
+        EventLog log;
+        try {
+            log = new EventLog(file.getPath(), event -> {
+                catchup.accept(event);
+                if (CirculationEvent.RETURN.equals(event.getType())) {
+                    returns.add(event);
+                }
+            });
+        } finally {
+            catchup.finish();
+        }
+        Check.equal(state(live), state(restarted), "state after a single read of the log");
+        Check.equal(log.getLastSequence(), restarted.getEventSequence(), "numbering continues after the log");
+        Check.equal(1, returns.size(), "returns collected in the same pass");
+        Check.isTrue(!restarted.isQuiet(), "library speaks again after replay");
+        log.close();
+        file.delete();
+    }
+
+    // Loan IDs are the barcodes returnBatch scans, so the replayed library must hold the same ones
+    static void replayedLoansKeepTheirBarcodes() throws IOException {
+        File file = tempLog();
+        Library live = runDesk(file.getPath(), new long[1]);
+        Library replayed = new ReplayEngine().replay(file.getPath()).getLibrary();
+        replayed.setQuiet(true);
+        List<String> barcodes = new ArrayList<>();
+        for (Transaction loan : live.getLoans().allLoans()) {
+            if (!loan.isReturned()) {
+                barcodes.add(loan.getTransactionId());
+            }
+        }
+        Check.isTrue(!barcodes.isEmpty(), "open loans to scan");
+        Check.equal(barcodes.size(), replayed.returnBatch(barcodes), "every live barcode checks in on the replay");
+        file.delete();
+    }
+
+    static void bookUpdateBelowLoansIsRefused() {
+        Library library = new Library();
+        library.setQuiet(true);
+        library.addBook("B1", "Dune", "Herbert", 2);
+        library.addMember("M1", "Ann", "ann@x.org");
+        library.borrowBook("M1", "B1");
+        Check.isTrue(!library.applyBookUpdate("B1", "Dune", "Herbert", 0, 1, "SF"), "fewer copies than loans");
+        Book book = library.searchBook("B1");
+        Check.equal(2, book.getTotalCopies(), "refused update leaves the stock");
+        Check.equal("General", book.getGenre(), "refused update changes nothing");
+        Check.isTrue(library.applyBookUpdate("B1", "Dune", "Herbert", 1, 1, "SF"), "down to the copy on loan");
+        Check.equal(0, book.getAvailableCopies(), "the shelf copy went");
+        Check.isTrue(library.applyBookUpdate("B1", "Dune", "Herbert", 4, 1, "SF"), "more copies");
+        Check.equal(3, book.getAvailableCopies(), "new copies on the shelf");
+    }
+
+    static File tempLog() throws IOException {
+        File file = File.createTempFile("circulation", ".log");
+        file.delete();
+        return file;
+    }
+
+    // Everything circulation decides, in a canonical order
+    static String state(Library library) {
+        List<String> lines = new ArrayList<>();
+        for (Book book : library.getCatalog().allBooks()) {
+            lines.add("book " + book.getIsbn() + " " + book.getTitle() + " by " + book.getAuthor() +
+                    " genre=" + book.getGenre() + " total=" + book.getTotalCopies() +
+                    " available=" + book.getAvailableCopies() + " held=" + book.getHeldCopies() +
+                    " active=" + book.isActive() + " borrowers=" + book.getCurrentBorrowers() +
+                    " queue=" + book.getBorrowersQueue());
+        }
+        for (Member member : library.getCatalog().allMembers()) {
+            List<String> borrowed = new ArrayList<>();
+            for (Book book : member.getAllBorrowedBooks()) {
+                borrowed.add(book.getIsbn());
+            }
+            Collections.sort(borrowed);
+            lines.add("member " + member.getMemberId() + " " + member.getName() + " " + member.getEmail() +
+                    " active=" + member.isActive() + " tier=" + member.getPriorityTier() +
+                    " type=" + member.getMemberType() + " borrowed=" + borrowed);
+        }
+        for (Transaction loan : library.getLoans().allLoans()) {
+            if (!loan.isReturned()) {
+                lines.add("loan " + loan.getTransactionId() + " " + loan.getMemberId() + " " + loan.getBookIsbn() + " issued=" +
+                        loan.getIssueDate().getTime() + " due=" + loan.getDueDate().getTime());
+            }
+        }
+        for (Hold hold : library.getReservations().getActiveHolds()) {
+            lines.add("hold " + hold.getMemberId() + " " + hold.getIsbn() + " until " + hold.getExpiresAt());
+        }
+        Collections.sort(lines);
+        return String.join("\n", lines);
+    }
+}
@@ -0,0 +1,123 @@
+import java.io.File;
+import java.io.IOException;
+
+// Log shipping: a replica catches up and follows, the primary trims what is acknowledged or
+// past retention, a late replica rejoins after seeding from the circulation log, and a
+// promoted replica continues the primary's numbering
+public class ReplicationTest {
+    public static void main(String[] args) throws Exception {
+        replicaCatchesUpAndFollows();
+        retentionIsBoundedWithoutReplicas();
+        lateReplicaRejoinsFromLogAndIsPromoted();
+        System.out.println("ReplicationTest passed");
+    }
+
+    static void replicaCatchesUpAndFollows() throws Exception {
+        File file = ReplayTest.tempLog();
+        Library primary = primaryLibrary();
+        EventLog log = new EventLog(file.getPath());
+        primary.addListener(log);
+        ReplicationPrimary shipping = new ReplicationPrimary(primary);
+        int port = shipping.start(0);
+        desk(primary, 0);
+
+        ReplicaLibrary replica = new ReplicaLibrary(quietLibrary(), 0);
+        replica.connect(port);
+        awaitSequence(replica, primary.getEventSequence());
+        Check.equal("Dune 0", replica.searchBook("B0").getTitle(), "caught up from sequence 0");
+
+        desk(primary, 1); // Followed live; the acknowledgements let the primary trim
+        awaitSequence(replica, primary.getEventSequence());
+        primary.addBook("B-last", "Last", "Author", 1);
+        awaitSequence(replica, primary.getEventSequence());
+        awaitTrim(shipping);
+        Check.isTrue(shipping.getLogSize() < primary.getEventSequence(), "acknowledged prefix trimmed");
+
+        Library promoted = replica.promote();
+        Check.equal(ReplayTest.state(primary), ReplayTest.state(promoted), "replica state");
+        shipping.stop();
+        log.close();
+        file.delete();
+    }
+
+    static void retentionIsBoundedWithoutReplicas() {
+        Library primary = quietLibrary();
+        ReplicationPrimary shipping = new ReplicationPrimary(primary, 10);
+        for (int i = 0; i < 3000; i++) {
+            primary.addBook("R" + i, "Title " + i, "Author", 1);
+        }
+        Check.isTrue(shipping.getLogSize() < 10 + 1024, "retained log bounded, was " + shipping.getLogSize());
+        Check.isTrue(shipping.getTrimmedThrough() > 0, "trimmed with no replica connected");
+    }
+
+    static void lateReplicaRejoinsFromLogAndIsPromoted() throws Exception {
+        File file = ReplayTest.tempLog();
+        Library primary = primaryLibrary();
+        EventLog log = new EventLog(file.getPath());
+        primary.addListener(log);
+        ReplicationPrimary shipping = new ReplicationPrimary(primary, 5);
+        int port = shipping.start(0);
+        for (int round = 0; round < 300; round++) {
+            desk(primary, round);
+        }
+        Check.isTrue(shipping.getTrimmedThrough() > 0, "log trimmed past the start");
+
+        ReplicaLibrary unseeded = new ReplicaLibrary(quietLibrary(), 0);
+        unseeded.connect(port);
+        Thread.sleep(200);
+        Check.equal(0L, unseeded.getLastAppliedSequence(), "a replica behind the trimmed log is refused");
+
+        ReplicaLibrary seeded = new ReplicaLibrary(quietLibrary(), 0);
+        long seededAt = seeded.seedFromLog(file.getPath());
+        Check.equal(primary.getEventSequence(), seededAt, "seeded through the logged events");
+        seeded.connect(port);
+        desk(primary, 300); // Streamed after the seed
+        awaitSequence(seeded, primary.getEventSequence());
+        shipping.stop();
+        log.close();
+
+        long before = primary.getEventSequence();
+        Library promoted = seeded.promote();
+        Check.equal(ReplayTest.state(primary), ReplayTest.state(promoted), "seeded replica state");
+        Check.equal(before, promoted.getEventSequence(), "numbering taken over from the primary");
+        promoted.returnBook("M300", "B300");
+        Check.equal(before + 1, promoted.getEventSequence(), "promoted replica continues the numbering");
+        file.delete();
+    }
+
+    // One book, one member, a borrow and a renewal
+    static void desk(Library library, int round) {
+        library.addBook("B" + round, "Dune " + round, "Herbert", 1);
+        library.addMember("M" + round, "Reader " + round, "r" + round + "@x.org");
+        library.borrowBook("M" + round, "B" + round);
+        library.renewLoan("M" + round, "B" + round);
+    }
+
+    static void awaitSequence(ReplicaLibrary replica, long sequence) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (replica.getLastAppliedSequence() < sequence && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Check.equal(sequence, replica.getLastAppliedSequence(), "replica position");
+    }
+
+    static void awaitTrim(ReplicationPrimary shipping) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (shipping.getTrimmedThrough() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    static Library quietLibrary() {
+        Library library = new Library();
+        library.setQuiet(true);
+        return library;
+    }
+
+    // The primary runs on a fixed clock so loan dates compare exactly with the replica's
+    static Library primaryLibrary() {
+        Library library = quietLibrary();
+        library.setClock(() -> 1_000_000L);
+        return library;
+    }
+}
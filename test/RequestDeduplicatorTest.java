@@ -0,0 +1,93 @@
+import java.util.Arrays;
+
+// Expiry and refresh behaviour of the request dedup table, and request keys in Library
+public class RequestDeduplicatorTest {
+    public static void main(String[] args) {
+        replayWithinTtlReturnsCachedResult();
+        entryExpiresWithinOneTickOfTtl();
+        recordRefreshesAnExpiredEntry();
+        capacityIsBounded();
+        clockSteppedBackStillEvicts();
+        requestIdReusedForAnotherBookIsNotCached();
+        batchesWithEqualHashesAreNotConfused();
+        System.out.println("RequestDeduplicatorTest passed");
+    }
+
+    static void replayWithinTtlReturnsCachedResult() {
+        RequestDeduplicator table = new RequestDeduplicator(16, 1000, 100);
+        table.record("r1", 1, 0);
+        Check.equal(1, table.lookup("r1", 500), "cached result within TTL");
+        Check.equal(null, table.lookup("r2", 500), "unknown request");
+    }
+
+    static void entryExpiresWithinOneTickOfTtl() {
+        RequestDeduplicator table = new RequestDeduplicator(16, 1000, 100);
+        table.record("r1", 1, 0);
+        Check.equal(1, table.lookup("r1", 999), "still cached just before TTL");
+        Check.equal(null, table.lookup("r1", 1000), "expired at TTL");
+        table.lookup("other", 1100);
+        Check.equal(0, table.size(), "removed by the wheel one tick after TTL");
+    }
+
+    static void recordRefreshesAnExpiredEntry() {
+        RequestDeduplicator table = new RequestDeduplicator(16, 1000, 100);
+        table.record("r1", 0, 0);
+        Check.equal(null, table.lookup("r1", 1050), "expired, not yet removed");
+        table.record("r1", 1, 1050);
+        Check.equal(1, table.lookup("r1", 1500), "refreshed entry is cached again");
+        table.lookup("other", 2000);
+        Check.equal(1, table.size(), "old wheel reference does not remove the refreshed entry");
+        Check.equal(null, table.lookup("r1", 2050), "refreshed entry expires one TTL after the refresh");
+        table.lookup("other", 2200);
+        Check.equal(0, table.size(), "refreshed entry removed after its own TTL");
+    }
+
+    static void capacityIsBounded() {
+        RequestDeduplicator table = new RequestDeduplicator(4, 1000, 100);
+        for (int i = 0; i < 20; i++) {
+            table.record("r" + i, 1, i * 10);
+            Check.isTrue(table.size() <= 4, "size stays within capacity");
+        }
+        Check.equal(1, table.lookup("r19", 200), "newest entry kept");
+    }
+
+    // A clock set back by more than the TTL must not leave live entries outside the wheel
+    static void clockSteppedBackStillEvicts() {
+        RequestDeduplicator table = new RequestDeduplicator(2, 1000, 100);
+        table.record("a", 1, 100000);
+        table.record("b", 2, 100000);
+        table.record("c", 3, 0);
+        table.record("d", 4, 0);
+        table.record("e", 5, 0);
+        Check.isTrue(table.size() <= 2, "still bounded after the clock stepped back, was " + table.size());
+        Check.equal(5, table.lookup("e", 0), "latest request cached");
+        Check.equal(5, table.lookup("e", 100500), "held at the latest time seen, so not yet expired");
+        Check.equal(null, table.lookup("e", 101000), "expires a TTL after the latest time seen");
+    }
+
+    static void requestIdReusedForAnotherBookIsNotCached() {
+        Library library = new Library();
+        library.addBook("B1", "Dune", "Frank Herbert", 1);
+        library.addBook("B2", "Emma", "Jane Austen", 1);
+        library.addMember("M1", "Ann", "ann@example.org");
+        Check.isTrue(library.borrowBook("req-1", "M1", "B1"), "first borrow");
+        Check.isTrue(library.borrowBook("req-1", "M1", "B1"), "retry returns the cached result");
+        Check.equal(1, library.searchMember("M1").getBorrowedBooksCount(), "retry did not borrow twice");
+        Check.isTrue(library.borrowBook("req-1", "M1", "B2"), "same ID for another book is a new request");
+        Check.equal(2, library.searchMember("M1").getBorrowedBooksCount(), "second book borrowed");
+    }
+
+    // ["Aa"] and ["BB"] have the same List.hashCode(); the key must tell the batches apart
+    static void batchesWithEqualHashesAreNotConfused() {
+        Library library = new Library();
+        library.setQuiet(true);
+        library.addBook("B1", "Dune", "Frank Herbert", 1);
+        library.addBook("B2", "Emma", "Jane Austen", 1);
+        library.addMember("M1", "Ann", "ann@example.org");
+        library.applyBorrow("M1", "B1", -1, 0, "Aa");
+        library.applyBorrow("M1", "B2", -1, 0, "BB");
+        Check.equal(1, library.returnBatch("scan-1", Arrays.asList("Aa")), "first batch");
+        Check.equal(1, library.returnBatch("scan-1", Arrays.asList("BB")), "second batch is not a retry of the first");
+        Check.equal(0, library.searchMember("M1").getBorrowedBooksCount(), "both returned");
+    }
+}
@@ -0,0 +1,80 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Holds leave the expiry heap in expiry order, collected or replaced holds are skipped, and the
+// scheduler thread expires holds on the library's clock rather than the wall clock
+public class ReservationSchedulerTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    public static void main(String[] args) throws InterruptedException {
+        expiredHoldsComeOutInExpiryOrder();
+        collectedAndReplacedHoldsAreSkipped();
+        schedulerUsesLibraryClock();
+        System.out.println("ReservationSchedulerTest passed");
+    }
+
+    static void expiredHoldsComeOutInExpiryOrder() {
+        ReservationScheduler scheduler = new ReservationScheduler();
+        long[] expiries = { 500, 100, 900, 300, 700, 200 };
+        for (int i = 0; i < expiries.length; i++) {
+            scheduler.placeHold(new Hold("M" + i, "B", 0, expiries[i]));
+        }
+        Check.equal(List.of(), scheduler.pollExpired(99), "nothing expired yet");
+        Check.equal(List.of("M1", "M5", "M3"), members(scheduler.pollExpired(300)), "expired holds, earliest first");
+        Check.equal(3, scheduler.getActiveHoldCount(), "later holds stay active");
+        Check.equal(List.of("M0", "M4", "M2"), members(scheduler.pollExpired(1000)), "the rest, in order");
+        Check.equal(0, scheduler.getActiveHoldCount(), "heap drained");
+    }
+
+    static void collectedAndReplacedHoldsAreSkipped() {
+        ReservationScheduler scheduler = new ReservationScheduler();
+        Hold collected = new Hold("M1", "B1", 0, 100);
+        Hold first = new Hold("M2", "B2", 0, 100);
+        Hold replacement = new Hold("M2", "B2", 150, 400);
+        scheduler.placeHold(collected);
+        scheduler.placeHold(first);
+        Check.isTrue(scheduler.removeHold(collected), "collected at the desk");
+        Check.isTrue(scheduler.removeHold(first), "first hold ended");
+        scheduler.placeHold(replacement);
+        Check.equal(List.of(), scheduler.pollExpired(200), "stale heap entries do not expire the new hold");
+        Check.isTrue(scheduler.findHold("M2", "B2") == replacement, "replacement still active");
+        Check.equal(List.of("M2"), members(scheduler.pollExpired(400)), "replacement expires on its own time");
+    }
+
+    static void schedulerUsesLibraryClock() throws InterruptedException {
+        long[] clock = { System.currentTimeMillis() + 365 * DAY }; // Ahead of the wall clock
+        Library library = new Library();
+        library.setQuiet(true);
+        library.setClock(() -> clock[0]);
+        library.addBook("B1", "Dune", "Herbert", 1);
+        library.addMember("M1", "Ann", "ann@x.org");
+        library.addMember("M2", "Bob", "bob@x.org");
+        library.borrowBook("M1", "B1");
+        library.borrowBook("M2", "B1"); // Queued
+        library.returnBook("M1", "B1"); // Held for M2
+        Check.equal(1, library.getReservations().getActiveHoldCount(), "hold placed");
+
+        library.getReservations().start(library, 10);
+        try {
+            Thread.sleep(100);
+            Check.equal(1, library.getReservations().getActiveHoldCount(), "not expired by the library clock yet");
+            clock[0] += 30 * DAY;
+            long deadline = System.currentTimeMillis() + 5000;
+            while (library.getReservations().getActiveHoldCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Check.equal(0, library.getReservations().getActiveHoldCount(), "expired once the library clock passed it");
+            Check.equal(1, library.searchBook("B1").getAvailableCopies(), "copy back on the shelf");
+        } finally {
+            library.getReservations().stop();
+        }
+    }
+
+    private static List<String> members(List<Hold> holds) {
+        List<String> result = new ArrayList<>();
+        for (Hold hold : holds) {
+            result.add(hold.getMemberId());
+        }
+        return result;
+    }
+}
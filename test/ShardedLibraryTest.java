@@ -0,0 +1,89 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Routing by ISBN, and the member's loan limit held across shards, batches included
+public class ShardedLibraryTest {
+    public static void main(String[] args) {
+        booksAndSearchesAreRouted();
+        loanLimitHoldsAcrossShards();
+        batchReturnAndRenewSpanShards();
+        System.out.println("ShardedLibraryTest passed");
+    }
+
+    static void booksAndSearchesAreRouted() {
+        ShardedLibrary library = new ShardedLibrary(4);
+        Set<Integer> used = new HashSet<>();
+        for (int i = 0; i < 12; i++) {
+            library.addBook("978" + i, "Atlas " + i, "Mercator", 1);
+            used.add(library.shardIndexFor("978" + i));
+        }
+        Check.isTrue(used.size() > 1, "books spread over several shards");
+        for (int i = 0; i < 12; i++) {
+            Check.equal("Atlas " + i, library.searchBook("978" + i).getTitle(), "point lookup on the owning shard");
+        }
+        Check.equal(12, library.searchByTitle("atlas").size(), "title search gathers every shard");
+    }
+
+    static void loanLimitHoldsAcrossShards() {
+        ShardedLibrary library = new ShardedLibrary(3);
+        library.addMember("M1", "Ann", "ann@x.org");
+        List<String> isbns = booksOnEveryShard(library, 8);
+        int borrowed = 0;
+        for (String isbn : isbns) {
+            if (library.borrowBook("M1", isbn)) {
+                borrowed++;
+            }
+        }
+        Check.equal(5, borrowed, "default limit of five across all shards");
+        Check.equal(5, library.getOpenLoanCount("M1"), "cross-shard count");
+        Set<Integer> shardsUsed = new HashSet<>();
+        for (Transaction loan : library.getOpenLoans("M1")) {
+            shardsUsed.add(library.shardIndexFor(loan.getBookIsbn()));
+        }
+        Check.isTrue(shardsUsed.size() > 1, "loans taken on several shards");
+        Check.isTrue(library.returnBook("M1", isbns.get(0)), "return");
+        Check.equal(4, library.getOpenLoanCount("M1"), "count after a return");
+        Check.isTrue(library.borrowBook("M1", isbns.get(7)), "slot freed by the return");
+        Check.isTrue(!library.borrowBook("M1", isbns.get(6)), "limit reached again");
+    }
+
+    static void batchReturnAndRenewSpanShards() {
+        ShardedLibrary library = new ShardedLibrary(3);
+        library.addMember("M1", "Ann", "ann@x.org");
+        for (String isbn : booksOnEveryShard(library, 4)) {
+            library.borrowBook("M1", isbn);
+        }
+        Check.equal(4, library.renewAll("M1"), "renewed on every shard");
+        List<String> barcodes = new ArrayList<>();
+        for (Transaction loan : library.getOpenLoans("M1")) {
+            barcodes.add(loan.getTransactionId());
+        }
+        barcodes.add("no-such-barcode");
+        Check.equal(4, library.returnBatch(barcodes), "each barcode checked in on its own shard");
+        Check.equal(0, library.getOpenLoanCount("M1"), "count follows the batch");
+    }
+
+    // `count` ISBNs, taken round-robin over the shards so every shard gets some
+    static List<String> booksOnEveryShard(ShardedLibrary library, int count) {
+        List<List<String>> perShard = new ArrayList<>();
+        for (int i = 0; i < library.getShardCount(); i++) {
+            perShard.add(new ArrayList<>());
+        }
+        for (int i = 0; perShard.stream().anyMatch(List::isEmpty) || i < count * 4; i++) {
+            String isbn = "979" + i;
+            perShard.get(library.shardIndexFor(isbn)).add(isbn);
+        }
+        List<String> result = new ArrayList<>();
+        for (int i = 0; result.size() < count; i++) {
+            List<String> shard = perShard.get(i % perShard.size());
+            if (i / perShard.size() < shard.size()) {
+                String isbn = shard.get(i / perShard.size());
+                library.addBook(isbn, "Title " + isbn, "Author", 1);
+                result.add(isbn);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,105 @@
+// Burst, refill, refund and live rate changes, on a hand-driven clock; then the same through
+// AdmissionController, plus its bounded client table
+public class TokenBucketTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    public static void main(String[] args) {
+        burstThenRefill();
+        refundReturnsOneToken();
+        rateChangeAppliesToExistingBucket();
+        existingClientsGetNewLimit();
+        shedCallKeepsItsToken();
+        idleClientsAreEvicted();
+        System.out.println("TokenBucketTest passed");
+    }
+
+    static void burstThenRefill() {
+        TokenBucket bucket = new TokenBucket(10, 5); // One token per 100 ms, five at once
+        long now = 1000 * SECOND;
+        for (int i = 0; i < 5; i++) {
+            Check.isTrue(bucket.tryAcquire(now), "burst token " + i);
+        }
+        Check.isTrue(!bucket.tryAcquire(now), "refused past the burst");
+        Check.isTrue(!bucket.tryAcquire(now + SECOND / 20), "no token after half an interval");
+        Check.isTrue(bucket.tryAcquire(now + SECOND / 10), "one token after one interval");
+        Check.isTrue(!bucket.tryAcquire(now + SECOND / 10), "and only one");
+        for (int i = 0; i < 5; i++) {
+            Check.isTrue(bucket.tryAcquire(now + 10 * SECOND), "full again after idling, token " + i);
+        }
+    }
+
+    static void refundReturnsOneToken() {
+        TokenBucket bucket = new TokenBucket(1, 2);
+        long now = 50 * SECOND;
+        Check.isTrue(bucket.tryAcquire(now) && bucket.tryAcquire(now), "burst of two");
+        Check.isTrue(!bucket.tryAcquire(now), "empty");
+        bucket.refund();
+        Check.isTrue(bucket.tryAcquire(now), "refunded token spent again");
+        Check.isTrue(!bucket.tryAcquire(now), "only one was refunded");
+    }
+
+    static void rateChangeAppliesToExistingBucket() {
+        TokenBucket bucket = new TokenBucket(1, 1);
+        long now = 7 * SECOND;
+        Check.isTrue(bucket.tryAcquire(now), "first token");
+        Check.isTrue(!bucket.tryAcquire(now), "burst of one");
+        bucket.setRate(new TokenBucket.Rate(1, 10));
+        Check.isTrue(bucket.tryAcquire(now), "larger burst takes effect at once");
+    }
+
+    static void existingClientsGetNewLimit() {
+        AdmissionController controller = new AdmissionController(quietLibrary());
+        Check.equal(AdmissionController.ADMITTED, controller.admit("kiosk", AdmissionController.BORROW), "first call");
+        controller.done(AdmissionController.BORROW);
+        controller.setLimit(AdmissionController.BORROW, 0.001, 1); // One call per ~17 minutes
+        Check.equal(AdmissionController.RATE_LIMITED, controller.admit("kiosk", AdmissionController.BORROW),
+                "tracked client limited by the new rate");
+        Check.equal(AdmissionController.ADMITTED, controller.admit("kiosk", AdmissionController.SEARCH),
+                "other operations keep their limit");
+        controller.done(AdmissionController.SEARCH);
+    }
+
+    static void shedCallKeepsItsToken() {
+        AdmissionController controller = new AdmissionController(quietLibrary(), 1, 1, 100);
+        controller.setLimit(AdmissionController.BORROW, 0.001, 1);
+        Check.equal(AdmissionController.ADMITTED, controller.admit("desk", AdmissionController.BORROW), "desk lane taken");
+        Check.equal(AdmissionController.OVERLOADED, controller.admit("kiosk", AdmissionController.BORROW), "lane full");
+        controller.done(AdmissionController.BORROW);
+        Check.equal(AdmissionController.ADMITTED, controller.admit("kiosk", AdmissionController.BORROW),
+                "shed call did not spend the client's only token");
+        controller.done(AdmissionController.BORROW);
+        Check.equal(2L, controller.getAdmitted(AdmissionController.BORROW), "admitted count");
+        Check.equal(1L, controller.getOverloaded(AdmissionController.BORROW), "shed count");
+    }
+
+    static void idleClientsAreEvicted() {
+        AdmissionController controller = new AdmissionController(quietLibrary(), 64, 4, 2);
+        controller.setLimit(AdmissionController.BORROW, 1, 1);
+        long now = System.nanoTime();
+        for (String client : new String[] { "A", "B", "C" }) {
+            Check.equal(AdmissionController.ADMITTED, controller.admit(client, AdmissionController.BORROW, now),
+                    "first call from " + client);
+            controller.done(AdmissionController.BORROW);
+        }
+        Check.equal(2, controller.getTrackedClients(), "table stays at its bound");
+        Check.equal(AdmissionController.RATE_LIMITED, controller.admit("D", AdmissionController.BORROW, now),
+                "C and D share the overflow bucket while every tracked client is active");
+
+        now += 10 * SECOND; // A and B have refilled
+        Check.equal(AdmissionController.ADMITTED, controller.admit("F", AdmissionController.BORROW, now),
+                "new client tracked after the idle ones are dropped");
+        controller.done(AdmissionController.BORROW);
+        Check.equal(1, controller.getTrackedClients(), "idle clients evicted");
+        Check.equal(AdmissionController.RATE_LIMITED, controller.admit("F", AdmissionController.BORROW, now),
+                "F has its own bucket");
+        Check.equal(AdmissionController.ADMITTED, controller.admit("A", AdmissionController.BORROW, now),
+                "evicted client starts again with a full bucket");
+        controller.done(AdmissionController.BORROW);
+    }
+
+    private static Library quietLibrary() {
+        Library library = new Library();
+        library.setQuiet(true);
+        return library;
+    }
+}